@@ -1,5 +1,7 @@
 package com.alerts;
 
+import java.util.Objects;
+
 // Represents an alert
 public class Alert {
     private String patientId;
@@ -43,4 +45,9 @@ public class Alert {
         Alert alert = (Alert) obj;
         return timestamp == alert.timestamp && patientId.equals(alert.patientId) && condition.equals(alert.condition);
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(patientId, condition, timestamp);
+    }
 }
@@ -0,0 +1,343 @@
+package com.alerts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Delivers alerts to {@link AlertSink}s asynchronously, so that alert
+ * evaluation never waits for console, file or network I/O.
+ * Any number of threads can {@link #dispatch(Alert) dispatch} alerts into a
+ * bounded queue; a single delivery thread drains the queue in batches and
+ * hands each batch to every sink. When the queue is full the configured
+ * {@link BackpressurePolicy} decides what happens to a new alert. An optional
+ * {@link AlertSuppressionCache} in front of the queue drops repeated alerts
+ * before they take up room; an alert the queue then has no room for is
+ * released from the cache again, so its repeats still get through.
+ * Alerts are delivered in dispatch order. Under
+ * {@link BackpressurePolicy#COALESCE} alerts are parked in arrival order once
+ * the queue is full, and later alerts are parked behind them until the parked
+ * ones are delivered; an alert replacing a parked one takes its place at the
+ * end.
+ * Once {@link #close() closed}, a dispatcher rejects new alerts; every alert
+ * accepted before is still delivered.
+ * Counters of queued, dropped, coalesced, delivered and failed alerts are kept
+ * for monitoring.
+ */
+public class AlertDispatcher implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final BlockingQueue<Alert> queue;
+    // parked alerts in arrival order, guarded by parkLock
+    private final Map<String, Alert> parked = new LinkedHashMap<>();
+    private final Lock parkLock = new ReentrantLock();
+    private final int batchSize;
+    private final BackpressurePolicy policy;
+    private final List<AlertSink> sinks;
+    private final AlertSuppressionCache suppressionCache;
+    private final Thread deliveryThread;
+    // held shared by dispatch() while it enqueues and exclusively by close() to stop accepting
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Creates a dispatcher with a queue of 4096 alerts, batches of up to 256
+     * alerts and the {@link BackpressurePolicy#DROP} policy.
+     *
+     * @param sinks the sinks every alert is delivered to
+     */
+    public AlertDispatcher(AlertSink... sinks) {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, BackpressurePolicy.DROP, List.of(sinks));
+    }
+
+    /**
+     * Creates a dispatcher and starts its delivery thread.
+     *
+     * @param capacity  the maximum number of queued alerts
+     * @param batchSize the maximum number of alerts handed to a sink at once
+     * @param policy    what to do with new alerts while the queue is full
+     * @param sinks     the sinks every alert is delivered to
+     */
+    public AlertDispatcher(int capacity, int batchSize, BackpressurePolicy policy, List<AlertSink> sinks) {
+        this(capacity, batchSize, policy, sinks, null);
+    }
+
+    /**
+     * Creates a dispatcher that suppresses repeated alerts and starts its
+     * delivery thread.
+     *
+     * @param capacity         the maximum number of queued alerts
+     * @param batchSize        the maximum number of alerts handed to a sink at
+     *                         once
+     * @param policy           what to do with new alerts while the queue is full
+     * @param sinks            the sinks every alert is delivered to
+     * @param suppressionCache decides which alerts are repeats, or {@code null}
+     *                         to dispatch every alert
+     */
+    public AlertDispatcher(int capacity, int batchSize, BackpressurePolicy policy, List<AlertSink> sinks,
+            AlertSuppressionCache suppressionCache) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.sinks = List.copyOf(sinks);
+        this.suppressionCache = suppressionCache;
+        this.deliveryThread = new Thread(this::deliverLoop, "alert-dispatcher");
+        this.deliveryThread.setDaemon(true);
+        this.deliveryThread.start();
+    }
+
+    /**
+     * Queues an alert for delivery without waiting for the sinks. Depending on
+     * the backpressure policy, a full queue makes this method drop the alert,
+     * wait for room, or park the alert to be coalesced with later ones.
+     *
+     * @param alert the alert to deliver
+     * @return {@code true} if the alert was accepted, {@code false} if it was
+     *         suppressed as a repeat, dropped, or the dispatcher is closed
+     */
+    public boolean dispatch(Alert alert) {
+        acceptLock.readLock().lock();
+        try {
+            if (!running) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            return enqueue(alert);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    private boolean enqueue(Alert alert) {
+        if (suppressionCache != null && !suppressionCache.shouldDispatch(alert)) {
+            return false;
+        }
+        if (policy == BackpressurePolicy.COALESCE) {
+            return enqueueOrPark(alert);
+        }
+        if (queue.offer(alert)) {
+            queuedCount.incrementAndGet();
+            return true;
+        }
+        switch (policy) {
+            case BLOCK:
+                try {
+                    queue.put(alert);
+                    queuedCount.incrementAndGet();
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(alert);
+                    return false;
+                }
+            default:
+                drop(alert);
+                return false;
+        }
+    }
+
+    private boolean enqueueOrPark(Alert alert) {
+        parkLock.lock();
+        try {
+            queuedCount.incrementAndGet();
+            // while alerts are parked, later ones are parked behind them so they cannot overtake them
+            if (parked.isEmpty() && queue.offer(alert)) {
+                return true;
+            }
+            String key = alert.getPatientId() + "|" + alert.getCondition();
+            if (parked.remove(key) != null) {
+                coalescedCount.incrementAndGet();
+            }
+            parked.put(key, alert);
+            return true;
+        } finally {
+            parkLock.unlock();
+        }
+    }
+
+    private void drop(Alert alert) {
+        droppedCount.incrementAndGet();
+        if (suppressionCache != null) {
+            // the alert was never queued, so it must not suppress its repeats
+            suppressionCache.release(alert);
+        }
+    }
+
+    private void deliverLoop() {
+        List<Alert> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || parkedCount() > 0) {
+            try {
+                // parked alerts wait for nothing but the queued ones ahead of them
+                Alert first = parkedCount() > 0 ? queue.poll() : queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            deliverPending(batch);
+        }
+    }
+
+    private void deliverPending(List<Alert> batch) {
+        parkLock.lock();
+        try {
+            // every queued alert is older than the parked ones; holding the lock keeps
+            // a dispatch from queueing a newer alert between the two drains
+            queue.drainTo(batch, batchSize - batch.size());
+            Iterator<Alert> alerts = parked.values().iterator();
+            while (batch.size() < batchSize && alerts.hasNext()) {
+                batch.add(alerts.next());
+                alerts.remove();
+            }
+        } finally {
+            parkLock.unlock();
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    private int parkedCount() {
+        parkLock.lock();
+        try {
+            return parked.size();
+        } finally {
+            parkLock.unlock();
+        }
+    }
+
+    private void deliver(List<Alert> batch) {
+        boolean failed = false;
+        for (AlertSink sink : sinks) {
+            try {
+                sink.deliver(batch);
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                System.err.println("Error delivering alerts to " + sink.getClass().getSimpleName() + ": "
+                        + e.getMessage());
+            }
+        }
+        (failed ? failedCount : deliveredCount).addAndGet(batch.size());
+    }
+
+    /**
+     * Stops accepting alerts, delivers everything still queued and closes the
+     * sinks. Waits for dispatches in progress, so every alert accepted by
+     * {@link #dispatch(Alert)} is delivered, and rejects all later ones.
+     */
+    @Override
+    public void close() {
+        acceptLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        // nothing is enqueued any more, so the delivery thread drains the rest and stops
+        try {
+            deliveryThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (AlertSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + sink.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the cache suppressing repeated alerts, whose counters show how
+     * many alerts were let through and suppressed.
+     *
+     * @return the suppression cache, or {@code null} if there is none
+     */
+    public AlertSuppressionCache getSuppressionCache() {
+        return suppressionCache;
+    }
+
+    /**
+     * Returns the number of alerts accepted for delivery.
+     *
+     * @return the queued alert count
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * Returns the number of alerts discarded because the queue was full or the
+     * dispatcher was closed.
+     *
+     * @return the dropped alert count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of parked alerts replaced by a later alert for the
+     * same patient and condition.
+     *
+     * @return the coalesced alert count
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of alerts delivered to all sinks.
+     *
+     * @return the delivered alert count
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Returns the number of alerts at least one sink failed to deliver.
+     *
+     * @return the failed alert count
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Returns the number of alerts waiting for delivery.
+     *
+     * @return the pending alert count
+     */
+    public int getPendingCount() {
+        return queue.size() + parkedCount();
+    }
+}
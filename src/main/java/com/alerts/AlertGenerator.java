@@ -1,11 +1,13 @@
 package com.alerts;
 
 import com.data_management.*;
+import com.records.RecordTypes;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
 
 /**
  * The {@code AlertGenerator} class is responsible for monitoring patient data
@@ -14,8 +16,15 @@ import java.util.PriorityQueue;
  * it against specific health criteria.
  */
 public class AlertGenerator {
-    private Alert lastAlert;
+    private static final long TEN_MINUTES = 1000 * 60 * 10;
+    private static AlertDispatcher consoleDispatcher;
+    private volatile Alert lastAlert;
     private DataStorage dataStorage;
+    private final AlertDispatcher alertDispatcher;
+    // keyed by the patient itself and weakly, so a window goes with its patient
+    private final Map<Patient, SlidingWindowStats> ecgWindows = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ThreadLocal<RecordCursor> CURSORS = ThreadLocal.withInitial(RecordCursor::new);
+    private static final ThreadLocal<RecentReadings> RECENT_READINGS = ThreadLocal.withInitial(RecentReadings::new);
 
     /**
      * Constructs an {@code AlertGenerator} with a specified {@code DataStorage}.
@@ -26,7 +35,36 @@ public class AlertGenerator {
      *                    data
      */
     public AlertGenerator(DataStorage dataStorage) {
+        this(dataStorage, consoleDispatcher());
+    }
+
+    /**
+     * Constructs an {@code AlertGenerator} that hands triggered alerts to the
+     * given dispatcher, which delivers them to its sinks asynchronously.
+     *
+     * @param dataStorage     the data storage system that provides access to
+     *                        patient data
+     * @param alertDispatcher the dispatcher triggered alerts are queued on
+     */
+    public AlertGenerator(DataStorage dataStorage, AlertDispatcher alertDispatcher) {
         this.dataStorage = dataStorage;
+        this.alertDispatcher = alertDispatcher;
+    }
+
+    /**
+     * Returns the dispatcher shared by generators created without one. It prints
+     * alerts to the console, suppressing repeats of the same patient and
+     * condition for a minute, and is closed, delivering what is still queued,
+     * when the JVM shuts down.
+     */
+    private static synchronized AlertDispatcher consoleDispatcher() {
+        if (consoleDispatcher == null) {
+            AlertDispatcher dispatcher = new AlertDispatcher(4096, 256, BackpressurePolicy.DROP,
+                    List.of(new ConsoleAlertSink()), new AlertSuppressionCache(60_000, 10_000));
+            Runtime.getRuntime().addShutdownHook(new Thread(dispatcher::close));
+            consoleDispatcher = dispatcher;
+        }
+        return consoleDispatcher;
     }
 
     /**
@@ -40,24 +78,65 @@ public class AlertGenerator {
      * @param patient the patient data to evaluate for alert conditions
      */
     public void evaluateData(Patient patient) {
-        PatientRecord lastRecord = patient.getLastNRecords(1).get(0);
-        switch (lastRecord.getRecordType()){
-            case "Saturation":
-                evaluateBloodSaturation(patient);
-                hypotensiveHypoxemiaAlert(patient);
+        evaluateData(patient, this::triggerAlert);
+    }
+
+    /**
+     * Evaluates the specified patient's data like {@link #evaluateData(Patient)},
+     * but hands the raised alerts to the given consumer instead of triggering
+     * them. This lets several threads evaluate patients concurrently, each
+     * collecting its alerts in its own buffer.
+     * Time windows end at the patient's latest record, so archived data is
+     * evaluated the same way as live data.
+     *
+     * @param patient the patient data to evaluate for alert conditions
+     * @param alerts  receives the alerts raised for this patient
+     */
+    public void evaluateData(Patient patient, Consumer<Alert> alerts) {
+        PatientRecord lastRecord = latestRecord(patient);
+        if (lastRecord == null) {
+            return;
+        }
+        switch (lastRecord.getRecordTypeCode()){
+            case RecordTypes.SATURATION:
+                evaluateBloodSaturation(patient, lastRecord, alerts);
+                hypotensiveHypoxemiaAlert(patient, lastRecord, alerts);
                 break;
-            case "SystolicPressure":
-                evaluateBloodPressure(patient);
-                hypotensiveHypoxemiaAlert(patient);
+            case RecordTypes.SYSTOLIC_PRESSURE:
+                evaluateBloodPressure(patient, lastRecord, alerts);
+                hypotensiveHypoxemiaAlert(patient, lastRecord, alerts);
                 break;
-            case "DiastolicPressure":
-                evaluateBloodPressure(patient);
+            case RecordTypes.DIASTOLIC_PRESSURE:
+                evaluateBloodPressure(patient, lastRecord, alerts);
                 break;
-            case "ECG":
-                evaluateECG(patient);
+            case RecordTypes.ECG:
+                evaluateECG(patient, alerts);
         }
     }
 
+    /**
+     * Returns the patient's latest record, read from the tail of its record
+     * type's series instead of merging the latest records of all types.
+     */
+    private static PatientRecord latestRecord(Patient patient) {
+        int recordType = patient.getLatestRecordType();
+        RecentReadings latest = RECENT_READINGS.get();
+        if (recordType < 0 || patient.getLastNRecords(recordType, 1, latest.timestamps, latest.values) == 0) {
+            return null;
+        }
+        return new PatientRecord(patient.getPatientId(), latest.values[0], recordType, latest.timestamps[0]);
+    }
+
+    /**
+     * Opens this thread's cursor over the ten minutes of records of the given
+     * type up to the last record, so the rules read windows without building
+     * lists. Each rule finishes with the cursor before the next one opens it.
+     */
+    private static RecordCursor lastTenMinutes(Patient patient, int recordType, PatientRecord lastRecord) {
+        return patient.getCursor(recordType, lastRecord.getTimestamp() - TEN_MINUTES, lastRecord.getTimestamp(),
+                CURSORS.get());
+    }
+
     /**
      * Evaluates the patient's blood saturation is lower than 92% and the systolic
      * pressure is lower than 90 mmHg. If these conditions are met, an alert is
@@ -65,21 +144,14 @@ public class AlertGenerator {
      * This method should be called when the patient's latest record is a blood saturation record.
      * @param patient the patient data to evaluate for alert conditions
      */
-    private void hypotensiveHypoxemiaAlert(Patient patient){
-        List<String> labels = new ArrayList<>();
-        labels.add("Saturation");
-        labels.add("SystolicPressure");
-        List<PatientRecord> lastTenMinutes = Patient.filterRecordsBasedOnLabels(labels,
-                patient.getLastTenMinutes());
-        PatientRecord lastRecord = patient.getLastNRecords(1).get(0);
-        if (lastRecord.getRecordType().equals("Saturation")){
+    private void hypotensiveHypoxemiaAlert(Patient patient, PatientRecord lastRecord, Consumer<Alert> alerts){
+        if (lastRecord.getRecordTypeCode() == RecordTypes.SATURATION){
             try {
-                for (PatientRecord currentRecord : lastTenMinutes) {
-                    if (currentRecord.getRecordType().equals("SystolicPressure")) {
-                        if(lastRecord.getMeasurementValue() < 92.0 && currentRecord.getMeasurementValue() < 90.0){
-                            triggerAlert(new Alert(String.valueOf(lastRecord.getPatientId()), "Hypotensive Hypoxemia",
-                                    lastRecord.getTimestamp()));
-                        }
+                RecordCursor systolic = lastTenMinutes(patient, RecordTypes.SYSTOLIC_PRESSURE, lastRecord);
+                while (systolic.next()) {
+                    if(lastRecord.getMeasurementValue() < 92.0 && systolic.value() < 90.0){
+                        alerts.accept(new Alert(String.valueOf(lastRecord.getPatientId()), "Hypotensive Hypoxemia",
+                                lastRecord.getTimestamp()));
                     }
                 }
 
@@ -89,12 +161,11 @@ public class AlertGenerator {
             }
         } else {
             try {
-                for (PatientRecord currentRecord : lastTenMinutes) {
-                    if (currentRecord.getRecordType().equals("Saturation")) {
-                        if(lastRecord.getMeasurementValue() < 90.0 && currentRecord.getMeasurementValue() < 92.0){
-                            triggerAlert(new Alert(String.valueOf(lastRecord.getPatientId()), "Hypotensive Hypoxemia",
-                                    lastRecord.getTimestamp()));
-                        }
+                RecordCursor saturation = lastTenMinutes(patient, RecordTypes.SATURATION, lastRecord);
+                while (saturation.next()) {
+                    if(lastRecord.getMeasurementValue() < 90.0 && saturation.value() < 92.0){
+                        alerts.accept(new Alert(String.valueOf(lastRecord.getPatientId()), "Hypotensive Hypoxemia",
+                                lastRecord.getTimestamp()));
                     }
                 }
 
@@ -105,33 +176,60 @@ public class AlertGenerator {
         }
     }
 
-    private void evaluateBloodSaturation(Patient patient) {
-        List<PatientRecord> lastTenMinutes = Patient.filterRecordsBasedOnLabel("Saturation",
-                patient.getLastTenMinutes());
-        PatientRecord lastRecord = patient.getLastNRecords(1).get(0);
-        if(Math.abs((lastTenMinutes.get(0).getMeasurementValue() - lastRecord.getMeasurementValue())) >= 5) {
-            triggerAlert(new Alert(String.valueOf(lastRecord.getPatientId()), "Rapid drop",
+    private void evaluateBloodSaturation(Patient patient, PatientRecord lastRecord, Consumer<Alert> alerts) {
+        RecordCursor lastTenMinutes = lastTenMinutes(patient, RecordTypes.SATURATION, lastRecord);
+        if (!lastTenMinutes.next()) {
+            return;
+        }
+        double first = lastTenMinutes.value();
+        if(Math.abs((first - lastRecord.getMeasurementValue())) >= 5) {
+            alerts.accept(new Alert(String.valueOf(lastRecord.getPatientId()), "Rapid drop",
                     lastRecord.getTimestamp()));
         }
-        if(lastTenMinutes.get(0).getMeasurementValue() < 92.0) {
-            triggerAlert(new Alert(String.valueOf(lastRecord.getPatientId()), "Low Saturation",
+        if(first < 92.0) {
+            alerts.accept(new Alert(String.valueOf(lastRecord.getPatientId()), "Low Saturation",
                     lastRecord.getTimestamp()));
         }
     }
 
+    /**
+     * Judges the patient's ECG samples that arrived since the previous
+     * evaluation against the mean of the last ten minutes of ECG data. An
+     * "Abnormal ECG" alert is triggered for a sample that deviates from the mean
+     * by 1 or more. The window statistics are kept per patient in a
+     * {@link SlidingWindowStats}, so each sample is added and judged exactly
+     * once and costs constant time. Samples arriving later than an already
+     * judged sample are skipped. The window is kept only as long as the
+     * patient object itself, so it is released with the patient.
+     *
+     * @param patient the patient data to evaluate for ECG alert conditions
+     */
     public void evaluateECG(Patient patient) {
-        List<PatientRecord> lastTenMinutes = Patient.filterRecordsBasedOnLabel("ECG",
-                patient.getLastTenMinutes());
-        double sum = 0;
-        for (PatientRecord record : lastTenMinutes) {
-            sum  += record.getMeasurementValue();
-        }
-        double average = sum/lastTenMinutes.size();
-        for (PatientRecord record : lastTenMinutes) {
-            double measure = record.getMeasurementValue();
-            if(measure >= average + 1 || measure <= average - 1) {
-                triggerAlert(new Alert(String.valueOf(record.getPatientId()), "Abnormal ECG",
-                        record.getTimestamp()));
+        evaluateECG(patient, this::triggerAlert);
+    }
+
+    private void evaluateECG(Patient patient, Consumer<Alert> alerts) {
+        SlidingWindowStats window = ecgWindows.computeIfAbsent(patient, p -> new SlidingWindowStats(TEN_MINUTES));
+        synchronized (window) {
+            long from;
+            if (window.latestTimestamp() == Long.MIN_VALUE) {
+                long latest = patient.getLatestTimestamp(RecordTypes.ECG);
+                if (latest == Long.MIN_VALUE) {
+                    return;
+                }
+                from = latest - TEN_MINUTES;
+            } else {
+                from = window.latestTimestamp() + 1;
+            }
+            RecordCursor records = patient.getCursor(RecordTypes.ECG, from, Long.MAX_VALUE, CURSORS.get());
+            while (records.next()) {
+                double measure = records.value();
+                window.add(records.timestamp(), measure);
+                double average = window.mean();
+                if (measure >= average + 1 || measure <= average - 1) {
+                    alerts.accept(new Alert(String.valueOf(patient.getPatientId()), "Abnormal ECG",
+                            records.timestamp()));
+                }
             }
         }
     }
@@ -145,38 +243,51 @@ public class AlertGenerator {
      *                conditions
      */
     public void evaluateBloodPressure(Patient patient) {
+        PatientRecord lastRecord = latestRecord(patient);
+        if (lastRecord != null) {
+            evaluateBloodPressure(patient, lastRecord, this::triggerAlert);
+        }
+    }
+
+    private void evaluateBloodPressure(Patient patient, PatientRecord record, Consumer<Alert> alerts) {
         /* Critical Threshold Alert: Trigger an alert if the systolic blood pressure exceeds 180
          * mmHg or drops below 90 mmHg, or if diastolic blood pressure exceeds 120 mmHg or
          * drops below 60 mmHg
          */
-        // Get the latest record
-        PatientRecord record = patient.getLastNRecords(1).get(0);
-        if (record.getRecordType().equals("SystolicPressure") &&
+        if (record.getRecordTypeCode() == RecordTypes.SYSTOLIC_PRESSURE &&
                 (record.getMeasurementValue() > 180 || record.getMeasurementValue() < 90)){
-            triggerAlert(new Alert(String.valueOf(record.getPatientId()), "Critical threshold", record.getTimestamp()));
+            alerts.accept(new Alert(String.valueOf(record.getPatientId()), "Critical threshold", record.getTimestamp()));
         }
-        else if (record.getRecordType().equals("DiastolicPressure") &&
+        else if (record.getRecordTypeCode() == RecordTypes.DIASTOLIC_PRESSURE &&
                 (record.getMeasurementValue() > 120 || record.getMeasurementValue() < 60)){
-            triggerAlert(new Alert(String.valueOf(record.getPatientId()), "Critical threshold", record.getTimestamp()));
+            alerts.accept(new Alert(String.valueOf(record.getPatientId()), "Critical threshold", record.getTimestamp()));
         }
         /*
          * Trend Alert: Trigger an alert if the patient's blood pressure (systolic or diastolic) shows a
          * consistent increase or decrease across three consecutive readings where each reading
-         * changes by more than 10 mmHg from the last.
+         * changes by more than 10 mmHg from the last. The readings are the last three of the
+         * record's own type, however the other record types are interleaved with them.
          */
-        List<PatientRecord> records = Patient.filterRecordsBasedOnLabel(record.getRecordType(),patient.getLastNRecords(3));
-        if (records.size() == 3) {
-            double diff1 = Math.abs(records.get(0).getMeasurementValue() - records.get(1).getMeasurementValue());
-            double diff2 = Math.abs(records.get(1).getMeasurementValue() - records.get(2).getMeasurementValue());
+        RecentReadings recent = RECENT_READINGS.get();
+        if (patient.getLastNRecords(record.getRecordTypeCode(), 3, recent.timestamps, recent.values) == 3) {
+            double diff1 = Math.abs(recent.values[0] - recent.values[1]);
+            double diff2 = Math.abs(recent.values[1] - recent.values[2]);
             if (diff1 > 10 && diff2 > 10) {
-                triggerAlert(new Alert(String.valueOf(record.getPatientId()), "Trend", record.getTimestamp()));
+                alerts.accept(new Alert(String.valueOf(record.getPatientId()), "Trend", record.getTimestamp()));
             }
         }
     }
 
+    /** Scratch arrays for the last readings of one record type, reused per thread. */
+    private static final class RecentReadings {
+        final long[] timestamps = new long[3];
+        final double[] values = new double[3];
+    }
+
     /**
-     * Triggers an alert for the monitoring system. This method can be extended to
-     * notify medical staff, log the alert, or perform other actions. The method
+     * Triggers an alert for the monitoring system. The alert is queued on the
+     * {@link AlertDispatcher}, which notifies its sinks (console, file, network,
+     * ...) asynchronously, so no I/O happens on the evaluation thread. The method
      * currently assumes that the alert information is fully formed when passed as
      * an argument.
      *
@@ -185,7 +296,7 @@ public class AlertGenerator {
 
     private void triggerAlert(Alert alert) {
         this.lastAlert = alert;
-        System.out.println("ALERT: " + alert.toString());
+        alertDispatcher.dispatch(alert);
     }
 
     public Alert getLastAlert() {
@@ -199,8 +310,10 @@ public class AlertGenerator {
         try {
             reader.readData(storage);
         } catch (Exception e) {}
-        for (Patient patient : storage.getAllPatients()) {
-            alertGenerator.evaluateData(patient);
+        BatchEvaluationReport report = new BatchAlertEvaluator(alertGenerator).evaluateAll(storage.getAllPatients());
+        for (Alert alert : report.getAlerts()) {
+            System.out.println("ALERT: " + alert);
         }
+        System.out.println(report);
     }
 }
@@ -0,0 +1,25 @@
+package com.alerts;
+
+import java.util.function.Consumer;
+
+/**
+ * A stateful alert condition evaluated one sample at a time.
+ * Each patient gets its own rule instances from the {@link StreamingAlertEngine},
+ * so a rule only keeps the running state of a single patient. Implementations
+ * must do a constant amount of work per sample (amortized) and must never
+ * rescan the patient's history.
+ */
+public interface AlertRule {
+    /**
+     * Updates the rule's running state with a new sample and emits the alerts
+     * the sample raises.
+     *
+     * @param patientId  the ID of the patient the sample belongs to
+     * @param recordType the record type code, see
+     *                   {@link com.records.RecordTypes}
+     * @param value      the measured value
+     * @param timestamp  the timestamp of the sample
+     * @param alerts     receives the alerts raised by this sample
+     */
+    void onSample(int patientId, int recordType, double value, long timestamp, Consumer<Alert> alerts);
+}
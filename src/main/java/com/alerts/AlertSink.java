@@ -0,0 +1,29 @@
+package com.alerts;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination for alerts delivered by an {@link AlertDispatcher}. Sinks are
+ * handed one batch at a time and never concurrently, so implementations need
+ * no synchronization of their own.
+ */
+public interface AlertSink extends AutoCloseable {
+    /**
+     * Delivers a batch of alerts.
+     *
+     * @param alerts the alerts to deliver, in dispatch order
+     * @throws IOException if the alerts could not be delivered
+     */
+    void deliver(List<Alert> alerts) throws IOException;
+
+    /**
+     * Releases the resources held by this sink. Called once when the
+     * dispatcher is closed.
+     *
+     * @throws IOException if the sink could not be closed cleanly
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,164 @@
+package com.alerts;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suppresses repeated alerts for the same patient and condition.
+ * Once an alert passes, further alerts with the same patient and condition are
+ * suppressed until the cool-down has elapsed, measured on the alerts' own
+ * timestamps so archived data is deduplicated the same way as live data. A
+ * condition that persists therefore raises one alert per cool-down period
+ * instead of one per evaluation.
+ * The cache holds at most a fixed number of keys. When it fills up, the
+ * entries whose cool-down has expired (relative to the latest alert seen) are
+ * purged first; if none has, the least recently used key is evicted.
+ * All methods are thread-safe.
+ */
+public class AlertSuppressionCache {
+    private final long cooldownMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Long> lastPassed; // key -> timestamp of the last alert let through
+
+    private long latestTimestamp = Long.MIN_VALUE;
+    private long hitCount;
+    private long suppressedCount;
+    private long passedCount;
+    private long evictionCount;
+    private long expiredCount;
+
+    /**
+     * Creates a cache.
+     *
+     * @param cooldownMillis how long, in alert time, repeated alerts are
+     *                       suppressed after one was let through
+     * @param maxEntries     the maximum number of patient/condition keys kept
+     */
+    public AlertSuppressionCache(long cooldownMillis, int maxEntries) {
+        if (cooldownMillis < 0 || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid cool-down or cache size");
+        }
+        this.cooldownMillis = cooldownMillis;
+        this.maxEntries = maxEntries;
+        this.lastPassed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > AlertSuppressionCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Decides whether an alert should be dispatched and records it if so.
+     *
+     * @param alert the alert about to be dispatched
+     * @return {@code true} if the alert should be dispatched, {@code false} if
+     *         it repeats an alert within the cool-down
+     */
+    public synchronized boolean shouldDispatch(Alert alert) {
+        String key = alert.getPatientId() + "|" + alert.getCondition();
+        Long previous = lastPassed.get(key);
+        if (previous != null) {
+            hitCount++;
+            if (Math.abs(alert.getTimestamp() - previous) < cooldownMillis) {
+                suppressedCount++;
+                return false;
+            }
+        }
+        latestTimestamp = Math.max(latestTimestamp, alert.getTimestamp());
+        if (previous == null && lastPassed.size() >= maxEntries) {
+            purgeExpired();
+        }
+        lastPassed.put(key, alert.getTimestamp());
+        passedCount++;
+        return true;
+    }
+
+    /**
+     * Forgets an alert that {@link #shouldDispatch(Alert)} let through but that
+     * could not be dispatched after all, e.g. because the queue was full, so
+     * the next repeat is not suppressed for an alert that was never delivered.
+     * Nothing happens if a later alert for the same patient and condition has
+     * passed meanwhile.
+     *
+     * @param alert the alert that was not dispatched
+     */
+    public synchronized void release(Alert alert) {
+        String key = alert.getPatientId() + "|" + alert.getCondition();
+        Long passed = lastPassed.get(key);
+        if (passed != null && passed == alert.getTimestamp()) {
+            lastPassed.remove(key);
+            passedCount--;
+        }
+    }
+
+    private void purgeExpired() {
+        Iterator<Long> timestamps = lastPassed.values().iterator();
+        while (timestamps.hasNext()) {
+            if (latestTimestamp - timestamps.next() >= cooldownMillis) {
+                timestamps.remove();
+                expiredCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of alerts whose patient and condition were found in
+     * the cache, whether or not their cool-down had elapsed.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of alerts suppressed as repeats.
+     *
+     * @return the suppressed alert count
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Returns the number of alerts let through.
+     *
+     * @return the passed alert count
+     */
+    public synchronized long getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * Returns the number of keys evicted because the cache was full.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of keys purged because their cool-down had expired.
+     *
+     * @return the expired key count
+     */
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * Returns the number of patient/condition keys currently cached.
+     *
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return lastPassed.size();
+    }
+}
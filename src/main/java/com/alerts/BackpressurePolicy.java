@@ -0,0 +1,16 @@
+package com.alerts;
+
+/**
+ * What an {@link AlertDispatcher} does with an alert when its queue is full.
+ */
+public enum BackpressurePolicy {
+    /** Discard the new alert. */
+    DROP,
+    /** Wait until the delivery thread has made room in the queue. */
+    BLOCK,
+    /**
+     * Park the alert outside the queue, keeping only the latest alert per
+     * patient and condition until the delivery thread catches up.
+     */
+    COALESCE
+}
@@ -0,0 +1,90 @@
+package com.alerts;
+
+import com.data_management.Patient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates many patients in parallel with an {@link AlertGenerator}, e.g. to
+ * re-evaluate archived data. The patient list is split recursively into
+ * partitions that run on a {@link ForkJoinPool}; each partition collects its
+ * alerts in its own buffer and the buffers are merged when the partitions are
+ * joined, so workers never share a collection.
+ */
+public class BatchAlertEvaluator {
+    private static final int PARTITION_SIZE = 64;
+
+    private final AlertGenerator alertGenerator;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an evaluator running on the common fork/join pool.
+     *
+     * @param alertGenerator the generator used to evaluate each patient
+     */
+    public BatchAlertEvaluator(AlertGenerator alertGenerator) {
+        this(alertGenerator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an evaluator running on the given pool.
+     *
+     * @param alertGenerator the generator used to evaluate each patient
+     * @param pool           the pool the partitions run on
+     */
+    public BatchAlertEvaluator(AlertGenerator alertGenerator, ForkJoinPool pool) {
+        this.alertGenerator = alertGenerator;
+        this.pool = pool;
+    }
+
+    /**
+     * Evaluates all given patients and returns the raised alerts together with
+     * the evaluation throughput.
+     *
+     * @param patients the patients to evaluate
+     * @return the report of the run
+     */
+    public BatchEvaluationReport evaluateAll(List<Patient> patients) {
+        long start = System.nanoTime();
+        List<Alert> alerts = pool.invoke(new EvaluationTask(alertGenerator, patients, 0, patients.size()));
+        long elapsed = System.nanoTime() - start;
+        return new BatchEvaluationReport(patients.size(), alerts, elapsed, pool.getParallelism());
+    }
+
+    private static final class EvaluationTask extends RecursiveTask<List<Alert>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient AlertGenerator alertGenerator;
+        private final transient List<Patient> patients;
+        private final int from;
+        private final int to;
+
+        EvaluationTask(AlertGenerator alertGenerator, List<Patient> patients, int from, int to) {
+            this.alertGenerator = alertGenerator;
+            this.patients = patients;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Alert> compute() {
+            if (to - from <= PARTITION_SIZE) {
+                List<Alert> buffer = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    alertGenerator.evaluateData(patients.get(i), buffer::add);
+                }
+                return buffer;
+            }
+            int middle = (from + to) >>> 1;
+            EvaluationTask left = new EvaluationTask(alertGenerator, patients, from, middle);
+            left.fork();
+            List<Alert> right = new EvaluationTask(alertGenerator, patients, middle, to).compute();
+            List<Alert> merged = left.join();
+            merged.addAll(right);
+            return merged;
+        }
+    }
+}
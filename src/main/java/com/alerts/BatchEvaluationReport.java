@@ -0,0 +1,61 @@
+package com.alerts;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a {@link BatchAlertEvaluator} run: the alerts raised for all
+ * patients and how fast the patients were evaluated.
+ */
+public class BatchEvaluationReport {
+    private final int patientCount;
+    private final List<Alert> alerts;
+    private final long elapsedNanos;
+    private final int parallelism;
+
+    /**
+     * Creates a report.
+     *
+     * @param patientCount the number of patients evaluated
+     * @param alerts       the alerts raised, in patient order
+     * @param elapsedNanos the wall-clock duration of the run, in nanoseconds
+     * @param parallelism  the number of worker threads available to the run
+     */
+    public BatchEvaluationReport(int patientCount, List<Alert> alerts, long elapsedNanos, int parallelism) {
+        this.patientCount = patientCount;
+        this.alerts = Collections.unmodifiableList(alerts);
+        this.elapsedNanos = elapsedNanos;
+        this.parallelism = parallelism;
+    }
+
+    public int getPatientCount() {
+        return patientCount;
+    }
+
+    public List<Alert> getAlerts() {
+        return alerts;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the evaluation throughput of the run.
+     *
+     * @return the number of patients evaluated per second
+     */
+    public double getPatientsPerSecond() {
+        return elapsedNanos == 0 ? 0 : patientCount / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Evaluated %d patients in %.1f ms with %d workers (%.0f patients/s), %d alerts",
+                patientCount, elapsedNanos / 1_000_000.0, parallelism, getPatientsPerSecond(), alerts.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.alerts;
+
+import com.records.RecordTypes;
+
+import java.util.function.Consumer;
+
+/**
+ * Streaming version of the blood pressure checks of {@link AlertGenerator}.
+ * Raises a "Critical threshold" alert when systolic pressure leaves
+ * [90, 180] mmHg or diastolic pressure leaves [60, 120] mmHg, and a "Trend"
+ * alert when each of three consecutive readings of the same type changes by
+ * more than 10 mmHg from the one before, in either direction, as
+ * {@link AlertGenerator} does. Only the two previous readings of each type are
+ * remembered, so a reading older than the latest one of its type is ignored.
+ */
+public final class BloodPressureRule implements AlertRule {
+    private static final int SYSTOLIC = 0;
+    private static final int DIASTOLIC = 1;
+
+    private final double[] previous = new double[2];
+    private final double[] beforePrevious = new double[2];
+    private final int[] readings = new int[2];
+    private final long[] latestTimestamps = {Long.MIN_VALUE, Long.MIN_VALUE};
+
+    @Override
+    public void onSample(int patientId, int recordType, double value, long timestamp, Consumer<Alert> alerts) {
+        int slot;
+        if (recordType == RecordTypes.SYSTOLIC_PRESSURE) {
+            slot = SYSTOLIC;
+        } else if (recordType == RecordTypes.DIASTOLIC_PRESSURE) {
+            slot = DIASTOLIC;
+        } else {
+            return;
+        }
+        if (timestamp < latestTimestamps[slot]) {
+            return;
+        }
+        latestTimestamps[slot] = timestamp;
+        if (slot == SYSTOLIC) {
+            if (value > 180 || value < 90) {
+                alerts.accept(new Alert(String.valueOf(patientId), "Critical threshold", timestamp));
+            }
+        } else if (value > 120 || value < 60) {
+            alerts.accept(new Alert(String.valueOf(patientId), "Critical threshold", timestamp));
+        }
+        if (readings[slot] >= 2) {
+            double firstChange = Math.abs(previous[slot] - beforePrevious[slot]);
+            double secondChange = Math.abs(value - previous[slot]);
+            if (firstChange > 10 && secondChange > 10) {
+                alerts.accept(new Alert(String.valueOf(patientId), "Trend", timestamp));
+            }
+        }
+        beforePrevious[slot] = previous[slot];
+        previous[slot] = value;
+        readings[slot]++;
+    }
+}
@@ -0,0 +1,25 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps delivered alerts in memory, mainly for tests.
+ */
+public class CollectingAlertSink implements AlertSink {
+    private final List<Alert> alerts = new ArrayList<>();
+
+    @Override
+    public synchronized void deliver(List<Alert> batch) {
+        alerts.addAll(batch);
+    }
+
+    /**
+     * Returns a copy of the alerts delivered so far.
+     *
+     * @return the delivered alerts, in delivery order
+     */
+    public synchronized List<Alert> getAlerts() {
+        return new ArrayList<>(alerts);
+    }
+}
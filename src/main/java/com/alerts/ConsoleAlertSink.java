@@ -0,0 +1,18 @@
+package com.alerts;
+
+import java.util.List;
+
+/**
+ * Prints alerts to standard output, one line per alert, with a single write
+ * per batch.
+ */
+public class ConsoleAlertSink implements AlertSink {
+    @Override
+    public void deliver(List<Alert> alerts) {
+        StringBuilder lines = new StringBuilder(alerts.size() * 96);
+        for (Alert alert : alerts) {
+            lines.append("ALERT: ").append(alert).append(System.lineSeparator());
+        }
+        System.out.print(lines);
+    }
+}
@@ -0,0 +1,49 @@
+package com.alerts;
+
+import com.records.RecordTypes;
+
+import java.util.function.Consumer;
+
+/**
+ * Streaming version of the ECG check of {@link AlertGenerator}. Keeps the ECG
+ * samples of the window in {@link SlidingWindowStats} and raises an
+ * "Abnormal ECG" alert when a new sample deviates from the window mean by at
+ * least the configured amount. Only the new sample is judged, and like in
+ * {@link AlertGenerator} a sample not later than an already judged one is
+ * skipped.
+ */
+public final class EcgRule implements AlertRule {
+    private final double maxDeviation;
+    private final SlidingWindowStats window;
+
+    /**
+     * Creates a rule judging samples against the mean of the last ten minutes,
+     * allowing a deviation below 1.
+     */
+    public EcgRule() {
+        this(10 * 60 * 1000L, 1.0);
+    }
+
+    /**
+     * Creates a rule with the given window and allowed deviation.
+     *
+     * @param windowMillis the length of the window, in milliseconds
+     * @param maxDeviation the deviation from the mean that raises an alert
+     */
+    public EcgRule(long windowMillis, double maxDeviation) {
+        this.window = new SlidingWindowStats(windowMillis);
+        this.maxDeviation = maxDeviation;
+    }
+
+    @Override
+    public void onSample(int patientId, int recordType, double value, long timestamp, Consumer<Alert> alerts) {
+        if (recordType != RecordTypes.ECG || timestamp <= window.latestTimestamp()) {
+            return;
+        }
+        window.add(timestamp, value);
+        double mean = window.mean();
+        if (value >= mean + maxDeviation || value <= mean - maxDeviation) {
+            alerts.accept(new Alert(String.valueOf(patientId), "Abnormal ECG", timestamp));
+        }
+    }
+}
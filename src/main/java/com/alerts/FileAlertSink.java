@@ -0,0 +1,45 @@
+package com.alerts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends alerts to a file, one line per alert. The file is opened once and
+ * flushed after every batch.
+ */
+public class FileAlertSink implements AlertSink {
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the given file for appending, creating it and its parent
+     * directories if needed.
+     *
+     * @param file the file to append alerts to
+     * @throws IOException if the file cannot be opened
+     */
+    public FileAlertSink(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void deliver(List<Alert> alerts) throws IOException {
+        for (Alert alert : alerts) {
+            writer.write(alert.toString());
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.alerts;
+
+import com.records.RecordTypes;
+
+import java.util.function.Consumer;
+
+/**
+ * Streaming version of the hypotensive hypoxemia check of
+ * {@link AlertGenerator}, raising the same alerts for readings that arrive in
+ * timestamp order. A saturation reading below 92% raises a
+ * "Hypotensive Hypoxemia" alert for every systolic pressure reading below
+ * 90 mmHg of the window ending at it, and a systolic reading below 90 mmHg one
+ * for every saturation reading below 92% of that window. Only the timestamps
+ * of the low readings within the window are remembered. A reading older than
+ * the latest one of its type is ignored.
+ */
+public final class HypotensiveHypoxemiaRule implements AlertRule {
+    private final long windowMillis;
+    private final SampleRing lowSaturations = new SampleRing(16);
+    private final SampleRing lowSystolics = new SampleRing(16);
+    private long latestSaturationTime = Long.MIN_VALUE;
+    private long latestSystolicTime = Long.MIN_VALUE;
+
+    /**
+     * Creates a rule that pairs readings taken at most ten minutes apart.
+     */
+    public HypotensiveHypoxemiaRule() {
+        this(10 * 60 * 1000L);
+    }
+
+    /**
+     * Creates a rule that pairs readings taken at most the given time apart.
+     *
+     * @param windowMillis the maximum distance between the paired readings, in
+     *                     milliseconds
+     */
+    public HypotensiveHypoxemiaRule(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public void onSample(int patientId, int recordType, double value, long timestamp, Consumer<Alert> alerts) {
+        boolean low;
+        SampleRing partners;
+        if (recordType == RecordTypes.SATURATION) {
+            if (timestamp < latestSaturationTime) {
+                return;
+            }
+            latestSaturationTime = timestamp;
+            low = value < 92.0;
+            if (low) {
+                lowSaturations.addLast(timestamp, value);
+            }
+            partners = lowSystolics;
+        } else if (recordType == RecordTypes.SYSTOLIC_PRESSURE) {
+            if (timestamp < latestSystolicTime) {
+                return;
+            }
+            latestSystolicTime = timestamp;
+            low = value < 90.0;
+            if (low) {
+                lowSystolics.addLast(timestamp, value);
+            }
+            partners = lowSaturations;
+        } else {
+            return;
+        }
+        evictBefore(lowSaturations, timestamp - windowMillis);
+        evictBefore(lowSystolics, timestamp - windowMillis);
+        if (low) {
+            for (int i = 0; i < partners.size() && partners.timestampAt(i) <= timestamp; i++) {
+                alerts.accept(new Alert(String.valueOf(patientId), "Hypotensive Hypoxemia", timestamp));
+            }
+        }
+    }
+
+    private static void evictBefore(SampleRing readings, long start) {
+        while (!readings.isEmpty() && readings.firstTimestamp() < start) {
+            readings.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.alerts;
+
+/**
+ * A growable ring buffer of (timestamp, value) samples supporting adds at the
+ * end and removals at the front in constant amortized time. It backs the
+ * sliding windows kept by the streaming alert rules.
+ */
+final class SampleRing {
+    private long[] timestamps;
+    private double[] values;
+    private int head;
+    private int size;
+
+    SampleRing(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1;
+        timestamps = new long[capacity];
+        values = new double[capacity];
+    }
+
+    void addLast(long timestamp, double value) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        int index = (head + size) & (timestamps.length - 1);
+        timestamps[index] = timestamp;
+        values[index] = value;
+        size++;
+    }
+
+    void removeFirst() {
+        head = (head + 1) & (timestamps.length - 1);
+        size--;
+    }
+
+    long firstTimestamp() {
+        return timestamps[head];
+    }
+
+    double firstValue() {
+        return values[head];
+    }
+
+    /**
+     * Returns the timestamp at the given position, counted from the oldest
+     * sample.
+     */
+    long timestampAt(int index) {
+        return timestamps[(head + index) & (timestamps.length - 1)];
+    }
+
+    /**
+     * Returns the value at the given position, counted from the oldest sample.
+     */
+    double valueAt(int index) {
+        return values[(head + index) & (timestamps.length - 1)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length;
+        long[] grownTimestamps = new long[capacity * 2];
+        double[] grownValues = new double[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (capacity - 1);
+            grownTimestamps[i] = timestamps[index];
+            grownValues[i] = values[index];
+        }
+        timestamps = grownTimestamps;
+        values = grownValues;
+        head = 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.alerts;
+
+import com.records.RecordTypes;
+
+import java.util.function.Consumer;
+
+/**
+ * Streaming version of the blood saturation checks of {@link AlertGenerator},
+ * raising the same alerts for readings that arrive in timestamp order. Each
+ * reading is compared with the oldest reading of the window ending at it: a
+ * "Rapid drop" alert is raised when the two differ by at least 5 points and a
+ * "Low Saturation" alert when the oldest reading is below 92%. The readings of
+ * the window are kept in timestamp order, so each reading costs constant
+ * amortized time. A reading older than the latest one is ignored, as it can
+ * no longer end a window.
+ */
+public final class SaturationRule implements AlertRule {
+    private final long windowMillis;
+    private final SampleRing window = new SampleRing(16);
+    private long latestTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Creates a rule that looks for drops within the last ten minutes.
+     */
+    public SaturationRule() {
+        this(10 * 60 * 1000L);
+    }
+
+    /**
+     * Creates a rule that looks for drops within the given window.
+     *
+     * @param windowMillis the length of the window, in milliseconds
+     */
+    public SaturationRule(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public void onSample(int patientId, int recordType, double value, long timestamp, Consumer<Alert> alerts) {
+        if (recordType != RecordTypes.SATURATION || timestamp < latestTimestamp) {
+            return;
+        }
+        latestTimestamp = timestamp;
+        while (!window.isEmpty() && window.firstTimestamp() < timestamp - windowMillis) {
+            window.removeFirst();
+        }
+        window.addLast(timestamp, value);
+        double first = window.firstValue();
+        if (Math.abs(first - value) >= 5) {
+            alerts.accept(new Alert(String.valueOf(patientId), "Rapid drop", timestamp));
+        }
+        if (first < 92.0) {
+            alerts.accept(new Alert(String.valueOf(patientId), "Low Saturation", timestamp));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.alerts;
+
+/**
+ * Running mean and variance over a time-based sliding window of samples.
+ * Samples are kept in a ring buffer; adding a sample evicts the samples that
+ * fell out of the window and updates the statistics incrementally (Welford's
+ * method, applied in reverse for evicted samples), so each sample costs
+ * constant amortized time no matter how large the window is.
+ * Samples are expected in timestamp order.
+ */
+public class SlidingWindowStats {
+    private final long windowMillis;
+    private final SampleRing samples = new SampleRing(64);
+    private double mean;
+    private double squaredDeviations; // sum of squared deviations from the mean
+    private long latestTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param windowMillis the length of the window, in milliseconds; a sample
+     *                     stays in the window while it is at most this much
+     *                     older than the latest sample
+     */
+    public SlidingWindowStats(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Adds a sample and evicts the samples that are now outside the window.
+     *
+     * @param timestamp the timestamp of the sample
+     * @param value     the sample value
+     */
+    public void add(long timestamp, double value) {
+        latestTimestamp = Math.max(latestTimestamp, timestamp);
+        while (!samples.isEmpty() && samples.firstTimestamp() < latestTimestamp - windowMillis) {
+            remove(samples.firstValue());
+            samples.removeFirst();
+        }
+        samples.addLast(timestamp, value);
+        int count = samples.size();
+        double delta = value - mean;
+        mean += delta / count;
+        squaredDeviations += delta * (value - mean);
+    }
+
+    private void remove(double value) {
+        int count = samples.size();
+        if (count == 1) {
+            mean = 0;
+            squaredDeviations = 0;
+            return;
+        }
+        double previousMean = (count * mean - value) / (count - 1);
+        squaredDeviations = Math.max(0, squaredDeviations - (value - mean) * (value - previousMean));
+        mean = previousMean;
+    }
+
+    /**
+     * Returns the number of samples in the window.
+     *
+     * @return the sample count
+     */
+    public int count() {
+        return samples.size();
+    }
+
+    /**
+     * Returns the mean of the samples in the window, or 0 if it is empty.
+     *
+     * @return the mean
+     */
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * Returns the population variance of the samples in the window, or 0 if it
+     * is empty.
+     *
+     * @return the variance
+     */
+    public double variance() {
+        return samples.isEmpty() ? 0 : squaredDeviations / samples.size();
+    }
+
+    /**
+     * Returns the population standard deviation of the samples in the window.
+     *
+     * @return the standard deviation
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * Returns the timestamp of the latest sample added, or
+     * {@code Long.MIN_VALUE} if no sample was added yet.
+     *
+     * @return the latest timestamp
+     */
+    public long latestTimestamp() {
+        return latestTimestamp;
+    }
+}
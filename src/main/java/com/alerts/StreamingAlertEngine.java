@@ -0,0 +1,133 @@
+package com.alerts;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientDataListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Evaluates alert conditions incrementally as samples arrive, instead of
+ * recomputing them from a patient's raw history like {@link AlertGenerator}.
+ * Once attached to a {@link DataStorage}, every added sample is pushed to the
+ * patient's {@link AlertRule}s, which update their running state and emit
+ * alerts immediately. The cost per sample is therefore bounded by the rules'
+ * constant per-sample work, not by the size of the history.
+ * Samples of one patient are evaluated one at a time; samples of different
+ * patients can be evaluated concurrently.
+ * <p>
+ * The rules of a patient are kept until the patient is
+ * {@link #removePatient(int) removed} or {@link #evictIdle(long) evicted} for
+ * having had no samples for a while; a later sample of that patient starts
+ * again with fresh rules.
+ */
+public class StreamingAlertEngine implements PatientDataListener {
+    private final Supplier<List<AlertRule>> ruleFactory;
+    private final Consumer<Alert> alertConsumer;
+    private final ConcurrentHashMap<Integer, PatientRules> rulesByPatient = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine running the {@link #defaultRules() default rules}.
+     *
+     * @param alertConsumer receives every raised alert
+     */
+    public StreamingAlertEngine(Consumer<Alert> alertConsumer) {
+        this(StreamingAlertEngine::defaultRules, alertConsumer);
+    }
+
+    /**
+     * Creates an engine running the rules produced by the given factory.
+     *
+     * @param ruleFactory   creates a fresh set of rules for each new patient
+     * @param alertConsumer receives every raised alert
+     */
+    public StreamingAlertEngine(Supplier<List<AlertRule>> ruleFactory, Consumer<Alert> alertConsumer) {
+        this.ruleFactory = ruleFactory;
+        this.alertConsumer = alertConsumer;
+    }
+
+    /**
+     * Creates the rules matching the conditions checked by
+     * {@link AlertGenerator}. For samples added in timestamp order they raise
+     * the alerts {@code AlertGenerator} raises when it evaluates the patient
+     * after each sample; a sample older than the latest one of its type is
+     * ignored by the rules.
+     *
+     * @return a new list of rules for one patient
+     */
+    public static List<AlertRule> defaultRules() {
+        return List.of(new BloodPressureRule(), new SaturationRule(), new HypotensiveHypoxemiaRule(),
+                new EcgRule());
+    }
+
+    /**
+     * Subscribes this engine to every sample subsequently added to the storage.
+     *
+     * @param dataStorage the storage to listen to
+     */
+    public void attach(DataStorage dataStorage) {
+        dataStorage.addListener(this);
+    }
+
+    /**
+     * Drops the rules and running state of a patient, for a patient that is no
+     * longer monitored.
+     *
+     * @param patientId the unique identifier of the patient
+     */
+    public void removePatient(int patientId) {
+        rulesByPatient.remove(patientId);
+    }
+
+    /**
+     * Drops the rules and running state of every patient whose latest sample is
+     * older than the given time. Meant to be called periodically, so patients
+     * that stopped sending do not hold their state forever.
+     *
+     * @param idleSince the sample time, in milliseconds since the Unix epoch,
+     *                  before which a patient's latest sample makes it idle
+     * @return the number of evicted patients
+     */
+    public int evictIdle(long idleSince) {
+        int evicted = 0;
+        for (Map.Entry<Integer, PatientRules> entry : rulesByPatient.entrySet()) {
+            if (entry.getValue().lastTimestamp < idleSince
+                    && rulesByPatient.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of patients whose rules are currently kept.
+     *
+     * @return the number of patients
+     */
+    public int getPatientCount() {
+        return rulesByPatient.size();
+    }
+
+    @Override
+    public void onPatientData(int patientId, int recordType, double measurementValue, long timestamp) {
+        PatientRules patientRules = rulesByPatient.computeIfAbsent(patientId, id -> new PatientRules(ruleFactory.get()));
+        synchronized (patientRules) {
+            patientRules.lastTimestamp = Math.max(patientRules.lastTimestamp, timestamp);
+            for (AlertRule rule : patientRules.rules) {
+                rule.onSample(patientId, recordType, measurementValue, timestamp, alertConsumer);
+            }
+        }
+    }
+
+    private static final class PatientRules {
+        private final List<AlertRule> rules;
+        private volatile long lastTimestamp = Long.MIN_VALUE;
+
+        private PatientRules(List<AlertRule> rules) {
+            this.rules = rules;
+        }
+    }
+}
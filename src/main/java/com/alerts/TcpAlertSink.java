@@ -0,0 +1,58 @@
+package com.alerts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Sends alerts to a TCP server, one line per alert. The connection is opened
+ * on the first batch and reopened on the next batch after a failure.
+ */
+public class TcpAlertSink implements AlertSink {
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private BufferedWriter writer;
+
+    /**
+     * Creates a sink sending to the given server.
+     *
+     * @param host the host name of the server
+     * @param port the port of the server
+     */
+    public TcpAlertSink(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void deliver(List<Alert> alerts) throws IOException {
+        try {
+            if (socket == null) {
+                socket = new Socket(host, port);
+                writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            }
+            for (Alert alert : alerts) {
+                writer.write(alert.getPatientId() + "," + alert.getTimestamp() + "," + alert.getCondition());
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Socket current = socket;
+        socket = null;
+        writer = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
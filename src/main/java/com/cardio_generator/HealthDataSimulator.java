@@ -1,7 +1,5 @@
 package com.cardio_generator;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.cardio_generator.generators.AlertGenerator;
@@ -10,6 +8,7 @@ import com.cardio_generator.generators.BloodPressureDataGenerator;
 import com.cardio_generator.generators.BloodSaturationDataGenerator;
 import com.cardio_generator.generators.BloodLevelsDataGenerator;
 import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.outputs.BinaryFileOutputStrategy;
 import com.cardio_generator.outputs.ConsoleOutputStrategy;
 import com.cardio_generator.outputs.FileOutputStrategy;
 import com.cardio_generator.outputs.OutputStrategy;
@@ -32,14 +31,25 @@ import java.util.ArrayList;
  * The default number of patients is 50, and the default output strategy is console output.
  * The application generates ECG data, blood saturation data, blood pressure data, blood levels data, and alerts for each patient.
  * The data is generated at different intervals to simulate real-time data generation.
- * The application uses a scheduled executor service to run the tasks at fixed intervals.
+ * The application uses a {@link SimulationScheduler} to run the tasks at fixed intervals. The timing wheel
+ * ({@link TimingWheelScheduler}) drives all patients from one thread per core, which only keeps up while the
+ * output does not block; it is the default except for the TCP output, whose writes block on a slow client,
+ * which gets a {@link VirtualThreadScheduler} by default.
+ * With the '--replay' option it instead runs a {@link ReplaySimulation}: a seeded simulation on a simulated clock,
+ * which produces the same data for the same seed and can run much faster than real time.
  * The application also provides a help message to explain the usage and options available.
  * The application parses the command line arguments to set the number of patients and output strategy.
  */
 public class HealthDataSimulator {
 
     private static int patientCount = 50; // Default number of patients
-    private static ScheduledExecutorService scheduler;
+    private static String executorType; // Chosen for the output unless given
+    private static SimulationScheduler scheduler;
+    private static boolean replay; // Replay on a simulated clock instead of scheduling in real time
+    private static long replaySeed;
+    private static double replaySpeed = 0; // As fast as possible
+    private static long replayStartMillis = ReplaySimulation.DEFAULT_START_MILLIS;
+    private static long replayDurationMillis = TimeUnit.DAYS.toMillis(1);
     private static OutputStrategy outputStrategy = new WebSocketOutputStrategy(8080); // Default output strategy
     private static final Random random = new Random();
 
@@ -53,7 +63,16 @@ public class HealthDataSimulator {
 
         parseArguments(args);
 
-        scheduler = Executors.newScheduledThreadPool(patientCount * 4);
+        if (replay) {
+            runReplay();
+            return;
+        }
+
+        if (executorType == null) {
+            executorType = defaultExecutorType(outputStrategy);
+        }
+        scheduler = createScheduler(executorType, patientCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(HealthDataSimulator::shutdown, "simulator-shutdown"));
 
         List<Integer> patientIds = initializePatientIds(patientCount);
         Collections.shuffle(patientIds); // Randomize the order of patient IDs
@@ -61,6 +80,83 @@ public class HealthDataSimulator {
         scheduleTasksForPatients(patientIds);
     }
 
+    /**
+     * Creates the scheduler running the generation tasks.
+     * 'wheel' drives all tasks from a timing wheel and a pool sized to the available processors, which
+     * falls behind as soon as outputs block, since every blocked task holds one of the few workers,
+     * 'pool' uses a scheduled thread pool with four threads per patient, as the simulator used to,
+     * 'virtual' runs every task in a loop on its own virtual thread, so blocking outputs stall only that loop.
+     * @param type         the scheduler type, 'wheel', 'pool' or 'virtual'
+     * @param patientCount the number of simulated patients
+     * @return the scheduler
+     */
+    static SimulationScheduler createScheduler(String type, int patientCount) {
+        switch (type) {
+            case "pool":
+                return new PooledSimulationScheduler(patientCount * 4);
+            case "virtual":
+                return new VirtualThreadScheduler();
+            default:
+                return new TimingWheelScheduler();
+        }
+    }
+
+    /**
+     * Returns the scheduler type suiting an output: 'virtual' for the TCP output, whose writes block while
+     * the client is slow, and 'wheel' for the others, which buffer or queue what they send.
+     * @param outputStrategy the output the generated data goes to
+     * @return the scheduler type
+     */
+    private static String defaultExecutorType(OutputStrategy outputStrategy) {
+        return outputStrategy instanceof TcpOutputStrategy ? "virtual" : "wheel";
+    }
+
+    /**
+     * Generates the data of the replay options, prints how long it took and exits.
+     */
+    private static void runReplay() {
+        ReplaySimulation simulation = new ReplaySimulation(replaySeed, patientCount, replayStartMillis,
+                replayDurationMillis, replaySpeed);
+        long start = System.nanoTime();
+        try {
+            long samples = simulation.run(outputStrategy);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Replayed %d samples for %d patients (seed %d) in %.1f s, %.0f samples/s%n",
+                    samples, patientCount, replaySeed, seconds, samples / seconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeOutput();
+        System.exit(0);
+    }
+
+    /**
+     * Stops generating data and closes the output strategy if it holds resources, so buffered output
+     * (e.g. of the file output) is written before the JVM exits.
+     */
+    private static void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeOutput();
+    }
+
+    /**
+     * Closes the output strategy if it holds resources.
+     */
+    private static void closeOutput() {
+        if (outputStrategy instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) outputStrategy).close();
+            } catch (Exception e) {
+                System.err.println("Error closing output: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Parses the command line arguments and sets the patient count and output strategy accordingly.
      * If the user specifies the '-h' option, it prints the help message and exits.
@@ -69,6 +165,9 @@ public class HealthDataSimulator {
      * If the user specifies the '--output' option, it sets the output strategy to the specified value.
      * If the user specifies an unknown output type, it prints an error message and uses the default output strategy.
      * If the user specifies the '--output' option with a file or WebSocket output, it creates the output directory if it does not exist.
+     * If the user specifies the '--executor' option, it selects the scheduler running the tasks; an unknown type keeps the default.
+     * If the user specifies the '--replay' option, it replays a seeded simulation instead, configured by the '--speed',
+     * '--start' and '--duration' options; invalid values print an error message and keep the default.
      * If the parser encounters an unknown option, it prints an error message and the help message and exits.
      * @param args the command line arguments
      * @throws IOException if an I/O error occurs
@@ -102,6 +201,8 @@ public class HealthDataSimulator {
                                 Files.createDirectories(outputPath);
                             }
                             outputStrategy = new FileOutputStrategy(baseDirectory);
+                        } else if (outputArg.startsWith("binary:")) {
+                            outputStrategy = new BinaryFileOutputStrategy(outputArg.substring(7));
                         } else if (outputArg.startsWith("websocket:")) {
                             try {
                                 int port = Integer.parseInt(outputArg.substring(10));
@@ -126,6 +227,58 @@ public class HealthDataSimulator {
                         }
                     }
                     break;
+                case "--executor":
+                    if (i + 1 < args.length) {
+                        String executorArg = args[++i];
+                        if (executorArg.equals("wheel") || executorArg.equals("pool") || executorArg.equals("virtual")) {
+                            executorType = executorArg;
+                        } else {
+                            System.err.println("Unknown executor type. Using the default for the output.");
+                        }
+                    }
+                    break;
+                case "--replay":
+                    if (i + 1 < args.length) {
+                        try {
+                            replaySeed = Long.parseLong(args[++i]);
+                            replay = true;
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid seed. Running in real time.");
+                        }
+                    }
+                    break;
+                case "--speed":
+                    if (i + 1 < args.length) {
+                        String speedArg = args[++i];
+                        try {
+                            double speed = speedArg.equals("max") ? 0 : Double.parseDouble(speedArg);
+                            if (speed < 0) {
+                                throw new NumberFormatException();
+                            }
+                            replaySpeed = speed;
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid speed. Using default value: max");
+                        }
+                    }
+                    break;
+                case "--start":
+                    if (i + 1 < args.length) {
+                        try {
+                            replayStartMillis = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid start time. Using default value: " + replayStartMillis);
+                        }
+                    }
+                    break;
+                case "--duration":
+                    if (i + 1 < args.length) {
+                        try {
+                            replayDurationMillis = parseDuration(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid duration. Using default value: 1d");
+                        }
+                    }
+                    break;
                 default:
                     System.err.println("Unknown option '" + args[i] + "'");
                     printHelp();
@@ -134,6 +287,41 @@ public class HealthDataSimulator {
         }
     }
 
+    /**
+     * Parses a duration given as a number with an optional unit suffix: 's' for seconds (the default), 'm' for
+     * minutes, 'h' for hours or 'd' for days.
+     * @param duration the duration, e.g. '90', '30m' or '7d'
+     * @return the duration in milliseconds
+     * @throws NumberFormatException if the duration is not valid or negative
+     */
+    private static long parseDuration(String duration) {
+        TimeUnit unit = TimeUnit.SECONDS;
+        String amount = duration;
+        if (!duration.isEmpty() && Character.isLetter(duration.charAt(duration.length() - 1))) {
+            amount = duration.substring(0, duration.length() - 1);
+            switch (duration.charAt(duration.length() - 1)) {
+                case 's':
+                    break;
+                case 'm':
+                    unit = TimeUnit.MINUTES;
+                    break;
+                case 'h':
+                    unit = TimeUnit.HOURS;
+                    break;
+                case 'd':
+                    unit = TimeUnit.DAYS;
+                    break;
+                default:
+                    throw new NumberFormatException("Unknown unit in " + duration);
+            }
+        }
+        long value = Long.parseLong(amount);
+        if (value < 0) {
+            throw new NumberFormatException("Negative duration " + duration);
+        }
+        return unit.toMillis(value);
+    }
+
     /**
      * Prints the help message for the application. 
      * This method is called when the user specifies the '-h' option.
@@ -148,12 +336,29 @@ public class HealthDataSimulator {
         System.out.println("  --output <type>          Define the output method. Options are:");
         System.out.println("                             'console' for console output,");
         System.out.println("                             'file:<directory>' for file output,");
+        System.out.println("                             'binary:<file>' for compact binary file output,");
         System.out.println("                             'websocket:<port>' for WebSocket output,");
         System.out.println("                             'tcp:<port>' for TCP socket output.");
+        System.out.println("  --executor <type>        Define how the generation tasks are run. Options are:");
+        System.out.println("                             'wheel' for a timing wheel on one thread per core, for outputs");
+        System.out.println("                             that do not block (default, except for 'tcp'),");
+        System.out.println("                             'pool' for a scheduled thread pool of four threads per patient,");
+        System.out.println("                             'virtual' for a virtual thread per task, for blocking outputs");
+        System.out.println("                             (default for 'tcp').");
+        System.out.println("  --replay <seed>          Instead of running in real time, generate the data on a simulated clock");
+        System.out.println("                             from the seed; the same seed always gives the same data.");
+        System.out.println("  --speed <factor>         Simulated seconds per real second of a replay, or 'max' (default).");
+        System.out.println("  --start <millis>         Simulated start time of a replay in epoch milliseconds");
+        System.out.println("                             (default: 2024-01-01T00:00:00Z).");
+        System.out.println("  --duration <time>        Simulated time a replay generates, in seconds or with the unit");
+        System.out.println("                             's', 'm', 'h' or 'd' (default: 1d).");
         System.out.println("Example:");
         System.out.println("  java HealthDataSimulator --patient-count 100 --output websocket:8080");
         System.out.println(
                 "  This command simulates data for 100 patients and sends the output to WebSocket clients connected to port 8080.");
+        System.out.println("  java HealthDataSimulator --patient-count 1000 --output binary:week.bin --replay 42 --duration 7d");
+        System.out.println(
+                "  This command generates a week of data for 1000 patients from seed 42 as fast as possible.");
     }
 
     /**
@@ -0,0 +1,39 @@
+package com.cardio_generator;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SimulationScheduler} backed by a {@link ScheduledExecutorService},
+ * which keeps one scheduled future per task in a heap and runs them on a pool
+ * of platform threads. This is how the simulator used to run; it is kept to
+ * compare against the {@link TimingWheelScheduler}.
+ */
+public class PooledSimulationScheduler implements SimulationScheduler {
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a scheduler running tasks on the given number of threads.
+     *
+     * @param threads the size of the thread pool
+     */
+    public PooledSimulationScheduler(int threads) {
+        this.executor = Executors.newScheduledThreadPool(threads);
+    }
+
+    @Override
+    public void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        executor.scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
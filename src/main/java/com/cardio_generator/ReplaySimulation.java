@@ -0,0 +1,131 @@
+package com.cardio_generator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import com.cardio_generator.generators.AlertGenerator;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+
+/**
+ * Runs the simulation on a simulated clock instead of a scheduler, for
+ * reproducible datasets and load tests. Simulated time advances in steps of one
+ * second from a fixed start; every step generates the samples that are due with
+ * the periods of the live simulator (ECG and saturation every second, alerts
+ * every 20 seconds, blood pressure every minute, blood levels every two
+ * minutes) through the batch methods of the generators.
+ * <p>
+ * All randomness derives from the seed: the patients' baselines and one
+ * {@link SplittableRandom} per fixed range of patients. The ranges are
+ * generated in parallel but written to the output in patient order, so a seed
+ * always produces the same stream of samples, regardless of the number of
+ * processors and the speed. The speed is the number of simulated seconds per
+ * real second, or 0 to run as fast as possible.
+ */
+public class ReplaySimulation {
+    /** The default simulated start time, 2024-01-01T00:00:00Z. */
+    public static final long DEFAULT_START_MILLIS = 1704067200000L;
+    private static final int PATIENTS_PER_RANGE = 256;
+    private static final long STEP_MILLIS = 1000;
+
+    private final int patientCount;
+    private final long startMillis;
+    private final long durationMillis;
+    private final double speed;
+    private final ECGDataGenerator ecgDataGenerator;
+    private final BloodSaturationDataGenerator bloodSaturationDataGenerator;
+    private final BloodPressureDataGenerator bloodPressureDataGenerator;
+    private final BloodLevelsDataGenerator bloodLevelsDataGenerator;
+    private final AlertGenerator alertGenerator;
+    private final SplittableRandom[] randoms;
+    private final SampleBatch[] batches;
+
+    /**
+     * Creates a replay.
+     *
+     * @param seed           the seed all random values derive from
+     * @param patientCount   the number of patients, with IDs from 1
+     * @param startMillis    the simulated time of the first step
+     * @param durationMillis the simulated time to generate
+     * @param speed          simulated seconds per real second, or 0 for as fast
+     *                       as possible
+     */
+    public ReplaySimulation(long seed, int patientCount, long startMillis, long durationMillis, double speed) {
+        if (patientCount < 1 || durationMillis < 0 || speed < 0) {
+            throw new IllegalArgumentException("Patient count must be positive, duration and speed non-negative");
+        }
+        this.patientCount = patientCount;
+        this.startMillis = startMillis;
+        this.durationMillis = durationMillis;
+        this.speed = speed;
+        SplittableRandom root = new SplittableRandom(seed);
+        this.ecgDataGenerator = new ECGDataGenerator(patientCount);
+        this.bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount, root.split());
+        this.bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount, root.split());
+        this.bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount, root.split());
+        this.alertGenerator = new AlertGenerator(patientCount);
+        int ranges = (patientCount + PATIENTS_PER_RANGE - 1) / PATIENTS_PER_RANGE;
+        this.randoms = new SplittableRandom[ranges];
+        this.batches = new SampleBatch[ranges];
+        for (int i = 0; i < ranges; i++) {
+            randoms[i] = root.split();
+            batches[i] = new SampleBatch(3 * PATIENTS_PER_RANGE);
+        }
+    }
+
+    /**
+     * Generates the whole duration and writes it to the output, waiting as
+     * needed to keep to the speed.
+     *
+     * @param outputStrategy the output to write to
+     * @return the number of samples written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long run(OutputStrategy outputStrategy) throws InterruptedException {
+        long samples = 0;
+        long realStartNanos = System.nanoTime();
+        long steps = (durationMillis + STEP_MILLIS - 1) / STEP_MILLIS;
+        for (long step = 0; step < steps; step++) {
+            long second = step; // one step per second
+            long timestamp = startMillis + step * STEP_MILLIS;
+            IntStream.range(0, batches.length).parallel().forEach(range -> generate(range, second, timestamp));
+            for (SampleBatch batch : batches) {
+                outputStrategy.output(batch);
+                samples += batch.size();
+            }
+            if (speed > 0) {
+                long dueNanos = realStartNanos
+                        + (long) ((step + 1) * TimeUnit.MILLISECONDS.toNanos(STEP_MILLIS) / speed);
+                long sleep = dueNanos - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+            }
+        }
+        return samples;
+    }
+
+    private void generate(int range, long second, long timestamp) {
+        int fromPatientId = 1 + range * PATIENTS_PER_RANGE;
+        int toPatientId = Math.min(fromPatientId + PATIENTS_PER_RANGE, patientCount + 1);
+        SplittableRandom random = randoms[range];
+        SampleBatch batch = batches[range];
+        batch.clear();
+        ecgDataGenerator.generateBatch(fromPatientId, toPatientId, timestamp, random, batch);
+        bloodSaturationDataGenerator.generateBatch(fromPatientId, toPatientId, timestamp, random, batch);
+        if (second % 60 == 0) {
+            bloodPressureDataGenerator.generateBatch(fromPatientId, toPatientId, timestamp, random, batch);
+        }
+        if (second % 120 == 0) {
+            bloodLevelsDataGenerator.generateBatch(fromPatientId, toPatientId, timestamp, random, batch);
+        }
+        if (second % 20 == 0) {
+            alertGenerator.generateBatch(fromPatientId, toPatientId, timestamp, random, batch);
+        }
+    }
+}
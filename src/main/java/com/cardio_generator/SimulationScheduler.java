@@ -0,0 +1,40 @@
+package com.cardio_generator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the periodic data generation tasks of the {@link HealthDataSimulator}.
+ * Every simulated patient schedules one task per generator, so an
+ * implementation must cope with hundreds of thousands of tasks. A periodic task
+ * never runs concurrently with itself.
+ */
+public interface SimulationScheduler {
+
+    /**
+     * Schedules a task to run periodically, first after the initial delay and
+     * then once every period, measured from the planned start of the previous
+     * run.
+     *
+     * @param task         the task to run
+     * @param initialDelay the time until the first run
+     * @param period       the time between runs
+     * @param unit         the time unit of the delay and period
+     */
+    void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit);
+
+    /**
+     * Stops starting new runs. Runs in progress are completed.
+     */
+    void shutdown();
+
+    /**
+     * Waits for the runs in progress to complete after a {@link #shutdown()}.
+     *
+     * @param timeout the longest time to wait
+     * @param unit    the time unit of the timeout
+     * @return {@code true} if all runs completed, {@code false} if the timeout
+     *         elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
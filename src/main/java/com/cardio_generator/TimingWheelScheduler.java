@@ -0,0 +1,227 @@
+package com.cardio_generator;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link SimulationScheduler} based on a hashed timing wheel, which drives
+ * any number of periodic tasks from a single ticker thread and a small, fixed
+ * worker pool.
+ * <p>
+ * Time is divided into ticks. Tasks are kept in the slot of the wheel their
+ * next run falls into, in an intrusive list, together with the number of full
+ * turns of the wheel still to wait. On every tick the ticker walks one slot,
+ * puts the tasks that are due back into the slot of their next run and hands
+ * them to the workers in batches, so scheduling costs constant time per run
+ * and a tick with thousands of due tasks costs only a handful of executor
+ * submissions. Runs start at most one tick late; a run that is due while the
+ * previous run of the same task is still in progress is skipped. The ticker
+ * thread is started by the first scheduled task.
+ */
+public class TimingWheelScheduler implements SimulationScheduler {
+    private static final long DEFAULT_TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512; // a power of two, one turn of the default wheel is ~5 s
+    private static final int BATCH_SIZE = 256;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Task[] wheel = new Task[WHEEL_SIZE];
+    private final ConcurrentLinkedQueue<Task> added = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread ticker;
+    private final LongAdder skippedRuns = new LongAdder();
+    private Task[] due = new Task[BATCH_SIZE];
+    private long tick; // the next tick to process, only touched by the ticker
+    private volatile boolean shutdown;
+
+    /** A periodic task, linked into the slot of its next run. */
+    private static final class Task {
+        final Runnable action;
+        final long periodTicks;
+        final AtomicBoolean running = new AtomicBoolean();
+        long firstRunNanos; // relative to the start of the wheel, until the task is inserted
+        long deadlineTick;
+        long rounds;
+        Task next;
+
+        Task(Runnable action, long firstRunNanos, long periodTicks) {
+            this.action = action;
+            this.firstRunNanos = firstRunNanos;
+            this.periodTicks = periodTicks;
+        }
+    }
+
+    /**
+     * Creates a scheduler with one worker per available processor and a tick
+     * of 10 ms.
+     */
+    public TimingWheelScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param threads    the number of worker threads running the tasks
+     * @param tickMillis the resolution of the wheel; periods are rounded to
+     *                   whole ticks
+     */
+    public TimingWheelScheduler(int threads, long tickMillis) {
+        if (threads < 1 || tickMillis < 1) {
+            throw new IllegalArgumentException("Threads and tick must be positive");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "simulator-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        if (shutdown) {
+            throw new IllegalStateException("Scheduler is shut down");
+        }
+        long firstRunNanos = System.nanoTime() - startNanos + unit.toNanos(Math.max(initialDelay, 0));
+        long periodTicks = Math.max(1, Math.round((double) unit.toNanos(period) / tickNanos));
+        added.add(new Task(task, firstRunNanos, periodTicks));
+        if (!started.get() && started.compareAndSet(false, true)) {
+            // not a daemon: like the threads of a scheduled thread pool, it keeps the simulator running
+            Thread thread = new Thread(this::run, "simulator-ticker");
+            ticker = thread;
+            thread.start();
+        }
+    }
+
+    private void run() {
+        tick = (System.nanoTime() - startNanos) / tickNanos;
+        while (!shutdown) {
+            long sleep = startNanos + tick * tickNanos - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            Task task;
+            while ((task = added.poll()) != null) {
+                task.deadlineTick = Math.max(tick, Math.ceilDiv(task.firstRunNanos, tickNanos));
+                insert(task);
+            }
+            int dueCount = collectDue((int) (tick & (WHEEL_SIZE - 1)));
+            tick++;
+            for (int i = 0; i < dueCount; i++) {
+                Task dueTask = due[i];
+                // fixed rate, but a wheel that fell behind does not replay the missed runs
+                dueTask.deadlineTick = Math.max(dueTask.deadlineTick + dueTask.periodTicks, tick);
+                insert(dueTask);
+            }
+            for (int from = 0; from < dueCount; from += BATCH_SIZE) {
+                Task[] batch = Arrays.copyOfRange(due, from, Math.min(from + BATCH_SIZE, dueCount));
+                workers.execute(() -> runBatch(batch));
+            }
+            Arrays.fill(due, 0, dueCount, null);
+        }
+        workers.shutdown();
+    }
+
+    /** Links a task into the slot of its deadline. */
+    private void insert(Task task) {
+        int slot = (int) (task.deadlineTick & (WHEEL_SIZE - 1));
+        task.rounds = (task.deadlineTick - tick) / WHEEL_SIZE;
+        task.next = wheel[slot];
+        wheel[slot] = task;
+    }
+
+    /** Unlinks the due tasks of a slot into {@link #due} and returns their number. */
+    private int collectDue(int slot) {
+        int count = 0;
+        Task previous = null;
+        Task task = wheel[slot];
+        while (task != null) {
+            Task next = task.next;
+            if (task.rounds > 0) {
+                task.rounds--;
+                previous = task;
+            } else {
+                if (previous == null) {
+                    wheel[slot] = next;
+                } else {
+                    previous.next = next;
+                }
+                task.next = null;
+                if (count == due.length) {
+                    due = Arrays.copyOf(due, count * 2);
+                }
+                due[count++] = task;
+            }
+            task = next;
+        }
+        return count;
+    }
+
+    private void runBatch(Task[] batch) {
+        for (Task task : batch) {
+            if (!task.running.compareAndSet(false, true)) {
+                skippedRuns.increment();
+                continue;
+            }
+            try {
+                task.action.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error in simulation task: " + e.getMessage());
+            } finally {
+                task.running.set(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of runs skipped because the previous run of the same
+     * task had not completed yet, a sign that the workers cannot keep up.
+     *
+     * @return the skipped run count
+     */
+    public long getSkippedRunCount() {
+        return skippedRuns.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (started.compareAndSet(false, true)) {
+            // no task was ever scheduled, so there is no ticker to shut the workers down
+            workers.shutdown();
+        } else {
+            Thread thread = ticker;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Thread thread = ticker;
+        if (thread != null) {
+            TimeUnit.NANOSECONDS.timedJoin(thread, Math.max(deadline - System.nanoTime(), 0));
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,77 @@
+package com.cardio_generator;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link SimulationScheduler} that gives every task its own virtual thread,
+ * which loops sleeping until the next run and running the task. A task that
+ * blocks, e.g. on a slow file, socket or WebSocket output, only parks its own
+ * virtual thread and releases the carrier thread, so a slow sink delays the
+ * patient and generator it is writing for instead of stalling a pool thread
+ * shared by thousands of tasks.
+ * <p>
+ * A loop that falls behind runs its task once when it catches up rather than
+ * replaying the missed runs, like the {@link TimingWheelScheduler}.
+ */
+public class VirtualThreadScheduler implements SimulationScheduler {
+    private final ThreadFactory factory = Thread.ofVirtual().name("simulator-task-", 1).factory();
+    private final Set<Thread> loops = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown;
+
+    @Override
+    public void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        if (shutdown) {
+            throw new IllegalStateException("Scheduler is shut down");
+        }
+        long firstRunNanos = System.nanoTime() + unit.toNanos(Math.max(initialDelay, 0));
+        long periodNanos = unit.toNanos(period);
+        Thread loop = factory.newThread(() -> loop(task, firstRunNanos, periodNanos));
+        loops.add(loop);
+        loop.start();
+    }
+
+    private void loop(Runnable task, long firstRunNanos, long periodNanos) {
+        try {
+            long nextRunNanos = firstRunNanos;
+            while (!shutdown) {
+                long sleep = nextRunNanos - System.nanoTime();
+                if (sleep > 0) {
+                    LockSupport.parkNanos(this, sleep);
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error in simulation task: " + e.getMessage());
+                }
+                nextRunNanos = Math.max(nextRunNanos + periodNanos, System.nanoTime());
+            }
+        } finally {
+            loops.remove(Thread.currentThread());
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Thread loop : loops) {
+            LockSupport.unpark(loop);
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread loop : loops) {
+            TimeUnit.NANOSECONDS.timedJoin(loop, deadline - System.nanoTime());
+        }
+        return loops.isEmpty();
+    }
+}
@@ -1,7 +1,11 @@
 package com.cardio_generator.generators;
 
 import java.util.Random; //deleted an empty line
+import java.util.SplittableRandom;
+
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.records.RecordTypes;
 
 /**
  * The AlertGenerator class is responsible for generating alerts for patients.
@@ -41,7 +45,7 @@ public class AlertGenerator implements PatientDataGenerator {
                     alertStates[patientId] = false;
                     // Output the alert
                     outputStrategy.output(patientId, System.currentTimeMillis(), //line wrapping
-                    "Alert", "resolved");
+                    RecordTypes.ALERT, 0);
                 }
             } else {
                 // Average rate (alerts per period), adjust based on desired frequency
@@ -53,7 +57,7 @@ public class AlertGenerator implements PatientDataGenerator {
                     alertStates[patientId] = true;
                     // Output the alert
                     outputStrategy.output(patientId, System.currentTimeMillis(), //line wrapping
-                    "Alert", "triggered");
+                    RecordTypes.ALERT, 1);
                 }
             }
         } catch (Exception e) {
@@ -63,4 +67,25 @@ public class AlertGenerator implements PatientDataGenerator {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Updates the alert state of each patient of the range like {@link #generate(int, OutputStrategy)}
+     * and adds a sample only for the patients whose alert was triggered (1) or resolved (0).
+     */
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, long timestamp, SplittableRandom random,
+            SampleBatch batch) {
+        double p = -Math.expm1(-0.1); // Probability of at least one alert in the period, lambda = 0.1
+        for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+            if (alertStates[patientId]) {
+                if (random.nextDouble() < 0.9) {
+                    alertStates[patientId] = false;
+                    batch.add(patientId, timestamp, RecordTypes.ALERT, 0);
+                }
+            } else if (random.nextDouble() < p) {
+                alertStates[patientId] = true;
+                batch.add(patientId, timestamp, RecordTypes.ALERT, 1);
+            }
+        }
+    }
 }
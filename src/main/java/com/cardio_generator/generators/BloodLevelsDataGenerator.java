@@ -1,8 +1,11 @@
 package com.cardio_generator.generators;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.records.RecordTypes;
 
 public class BloodLevelsDataGenerator implements PatientDataGenerator {
     private static final Random random = new Random();
@@ -24,6 +27,24 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
         }
     }
 
+    /**
+     * Creates a generator whose baseline values are drawn from the given random generator,
+     * so that the same seed always gives the same patients.
+     *
+     * @param patientCount the number of patients
+     * @param random       the random generator for the baseline values
+     */
+    public BloodLevelsDataGenerator(int patientCount, SplittableRandom random) {
+        baselineCholesterol = new double[patientCount + 1];
+        baselineWhiteCells = new double[patientCount + 1];
+        baselineRedCells = new double[patientCount + 1];
+        for (int i = 1; i <= patientCount; i++) {
+            baselineCholesterol[i] = 150 + random.nextDouble() * 50;
+            baselineWhiteCells[i] = 4 + random.nextDouble() * 6;
+            baselineRedCells[i] = 4.5 + random.nextDouble() * 1.5;
+        }
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
@@ -33,13 +54,37 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
             double redCells = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2; // Small variation
 
             // Output the generated values
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "WhiteBloodCells",
-                    Double.toString(whiteCells));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.CHOLESTEROL, cholesterol);
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.WHITE_BLOOD_CELLS, whiteCells);
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.RED_BLOOD_CELLS, redCells);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood levels data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, long timestamp, SplittableRandom random,
+            SampleBatch batch) {
+        int count = toPatientId - fromPatientId;
+        int start = batch.extend(3 * count);
+        int[] patientIds = batch.patientIds();
+        long[] timestamps = batch.timestamps();
+        int[] labelCodes = batch.labelCodes();
+        double[] values = batch.values();
+        for (int i = 0; i < count; i++) {
+            int patientId = fromPatientId + i;
+            int row = start + 3 * i;
+            for (int j = 0; j < 3; j++) {
+                patientIds[row + j] = patientId;
+                timestamps[row + j] = timestamp;
+            }
+            labelCodes[row] = RecordTypes.CHOLESTEROL;
+            values[row] = baselineCholesterol[patientId] + (random.nextDouble() - 0.5) * 10;
+            labelCodes[row + 1] = RecordTypes.WHITE_BLOOD_CELLS;
+            values[row + 1] = baselineWhiteCells[patientId] + (random.nextDouble() - 0.5) * 1;
+            labelCodes[row + 2] = RecordTypes.RED_BLOOD_CELLS;
+            values[row + 2] = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2;
+        }
+    }
 }
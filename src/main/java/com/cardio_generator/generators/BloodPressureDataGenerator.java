@@ -1,8 +1,11 @@
 package com.cardio_generator.generators;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.records.RecordTypes;
 
 public class BloodPressureDataGenerator implements PatientDataGenerator {
     private static final Random random = new Random();
@@ -21,6 +24,22 @@ public class BloodPressureDataGenerator implements PatientDataGenerator {
         }
     }
 
+    /**
+     * Creates a generator whose baseline values are drawn from the given random generator,
+     * so that the same seed always gives the same patients.
+     *
+     * @param patientCount the number of patients
+     * @param random       the random generator for the baseline values
+     */
+    public BloodPressureDataGenerator(int patientCount, SplittableRandom random) {
+        lastSystolicValues = new int[patientCount + 1];
+        lastDiastolicValues = new int[patientCount + 1];
+        for (int i = 1; i <= patientCount; i++) {
+            lastSystolicValues[i] = 110 + random.nextInt(20);
+            lastDiastolicValues[i] = 70 + random.nextInt(15);
+        }
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
@@ -34,13 +53,43 @@ public class BloodPressureDataGenerator implements PatientDataGenerator {
             lastSystolicValues[patientId] = newSystolicValue;
             lastDiastolicValues[patientId] = newDiastolicValue;
 
-            outputStrategy.output(patientId, System.currentTimeMillis(), "SystolicPressure",
-                    Double.toString(newSystolicValue));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "DiastolicPressure",
-                    Double.toString(newDiastolicValue));
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.SYSTOLIC_PRESSURE,
+                    newSystolicValue);
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.DIASTOLIC_PRESSURE,
+                    newDiastolicValue);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood pressure data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, long timestamp, SplittableRandom random,
+            SampleBatch batch) {
+        int count = toPatientId - fromPatientId;
+        int start = batch.extend(2 * count);
+        int[] patientIds = batch.patientIds();
+        long[] timestamps = batch.timestamps();
+        int[] labelCodes = batch.labelCodes();
+        double[] values = batch.values();
+        for (int i = 0; i < count; i++) {
+            int patientId = fromPatientId + i;
+            int newSystolicValue = lastSystolicValues[patientId] + random.nextInt(5) - 2;
+            int newDiastolicValue = lastDiastolicValues[patientId] + random.nextInt(5) - 2;
+            newSystolicValue = Math.min(Math.max(newSystolicValue, 90), 180);
+            newDiastolicValue = Math.min(Math.max(newDiastolicValue, 60), 120);
+            lastSystolicValues[patientId] = newSystolicValue;
+            lastDiastolicValues[patientId] = newDiastolicValue;
+
+            int row = start + 2 * i;
+            patientIds[row] = patientId;
+            timestamps[row] = timestamp;
+            labelCodes[row] = RecordTypes.SYSTOLIC_PRESSURE;
+            values[row] = newSystolicValue;
+            patientIds[row + 1] = patientId;
+            timestamps[row + 1] = timestamp;
+            labelCodes[row + 1] = RecordTypes.DIASTOLIC_PRESSURE;
+            values[row + 1] = newDiastolicValue;
+        }
+    }
 }
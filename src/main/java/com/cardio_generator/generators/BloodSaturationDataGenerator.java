@@ -1,8 +1,12 @@
 package com.cardio_generator.generators;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.records.RecordTypes;
 /**
  * BloodSaturationDataGenerator is an implementation of the PatientDataGenerator interface that 
  generates blood saturation data for patients.
@@ -28,6 +32,20 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
         }
     }
 
+    /**
+     * Creates a new BloodSaturationDataGenerator whose baseline values are drawn from the given
+     * random generator, so that the same seed always gives the same patients.
+     *
+     * @param patientCount the number of patients
+     * @param random       the random generator for the baseline values
+     */
+    public BloodSaturationDataGenerator(int patientCount, SplittableRandom random) {
+        lastSaturationValues = new int[patientCount + 1];
+        for (int i = 1; i <= patientCount; i++) {
+            lastSaturationValues[i] = 95 + random.nextInt(6);
+        }
+    }
+
     /**
      * Generates blood saturation data for the specified patient ID and outputs it using the 
      specified output strategy.
@@ -50,11 +68,34 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
             // Ensure the saturation stays within a realistic and healthy range
             newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
             lastSaturationValues[patientId] = newSaturationValue;
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Saturation",
-                    Double.toString(newSaturationValue) + "%");
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.SATURATION, newSaturationValue);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood saturation data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    /**
+     * Generates one blood saturation value for each patient of the range, varying like
+     * {@link #generate(int, OutputStrategy)}. The values are added as plain numbers, the {@code %} is
+     * added when they are written as text.
+     */
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, long timestamp, SplittableRandom random,
+            SampleBatch batch) {
+        int count = toPatientId - fromPatientId;
+        int start = batch.extend(count);
+        int[] patientIds = batch.patientIds();
+        double[] values = batch.values();
+        Arrays.fill(batch.timestamps(), start, start + count, timestamp);
+        Arrays.fill(batch.labelCodes(), start, start + count, RecordTypes.SATURATION);
+        for (int i = 0; i < count; i++) {
+            int patientId = fromPatientId + i;
+            int newSaturationValue = lastSaturationValues[patientId] + random.nextInt(3) - 1;
+            newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
+            lastSaturationValues[patientId] = newSaturationValue;
+            patientIds[start + i] = patientId;
+            values[start + i] = newSaturationValue;
+        }
+    }
 }
@@ -1,8 +1,12 @@
 package com.cardio_generator.generators;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.records.RecordTypes;
 
 public class ECGDataGenerator implements PatientDataGenerator {
     private static final Random random = new Random();
@@ -22,7 +26,7 @@ public class ECGDataGenerator implements PatientDataGenerator {
         // TODO Check how realistic this data is and make it more realistic if necessary
         try {
             double ecgValue = simulateEcgWaveform(patientId, lastEcgValues[patientId]);
-            outputStrategy.output(patientId, System.currentTimeMillis(), "ECG", Double.toString(ecgValue));
+            outputStrategy.output(patientId, System.currentTimeMillis(), RecordTypes.ECG, ecgValue);
             lastEcgValues[patientId] = ecgValue;
         } catch (Exception e) {
             System.err.println("An error occurred while generating ECG data for patient " + patientId);
@@ -30,10 +34,34 @@ public class ECGDataGenerator implements PatientDataGenerator {
         }
     }
 
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, long timestamp, SplittableRandom random,
+            SampleBatch batch) {
+        int count = toPatientId - fromPatientId;
+        int start = batch.extend(count);
+        int[] patientIds = batch.patientIds();
+        double[] values = batch.values();
+        Arrays.fill(batch.timestamps(), start, start + count, timestamp);
+        Arrays.fill(batch.labelCodes(), start, start + count, RecordTypes.ECG);
+        double t = timestamp / 1000.0;
+        for (int i = 0; i < count; i++) {
+            int patientId = fromPatientId + i;
+            double hr = 60.0 + random.nextDouble() * 20.0;
+            double ecgValue = waveform(hr, t) + random.nextDouble() * 0.05;
+            lastEcgValues[patientId] = ecgValue;
+            patientIds[start + i] = patientId;
+            values[start + i] = ecgValue;
+        }
+    }
+
     private double simulateEcgWaveform(int patientId, double lastEcgValue) {
         // Simplified ECG waveform generation based on sinusoids
         double hr = 60.0 + random.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
         double t = System.currentTimeMillis() / 1000.0; // Use system time to simulate continuous time
+        return waveform(hr, t) + random.nextDouble() * 0.05; // Add small noise
+    }
+
+    private static double waveform(double hr, double t) {
         double ecgFrequency = hr / 60.0; // Convert heart rate to Hz
 
         // Simulate different components of the ECG signal
@@ -41,6 +69,6 @@ public class ECGDataGenerator implements PatientDataGenerator {
         double qrsComplex = 0.5 * Math.sin(2 * PI * 3 * ecgFrequency * t); // QRS is higher frequency
         double tWave = 0.2 * Math.sin(2 * PI * 2 * ecgFrequency * t + PI / 4); // T wave is offset
 
-        return pWave + qrsComplex + tWave + random.nextDouble() * 0.05; // Add small noise
+        return pWave + qrsComplex + tWave;
     }
 }
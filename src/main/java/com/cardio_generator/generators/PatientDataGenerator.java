@@ -1,6 +1,9 @@
 package com.cardio_generator.generators;
 
+import java.util.SplittableRandom;
+
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
 
 /**
     * Generates patient data for the given patient ID using the specified output strategy.
@@ -10,4 +13,19 @@ import com.cardio_generator.outputs.OutputStrategy;
     */
 public interface PatientDataGenerator {
     void generate(int patientId, OutputStrategy outputStrategy);
+
+    /**
+     * Generates the data of one tick for a range of patients and adds it to a batch, in patient order.
+     * All samples share the timestamp, so the clock is read once per tick instead of once per sample,
+     * and the random values are drawn from a generator owned by the caller instead of a shared one.
+     * Batches for disjoint patient ranges may be generated concurrently.
+     *
+     * @param fromPatientId the first patient ID, inclusive
+     * @param toPatientId   the last patient ID, exclusive; at most the patient count plus one
+     * @param timestamp     the timestamp of the samples
+     * @param random        the random generator, used by the calling thread only
+     * @param batch         the batch to add the samples to
+     */
+    void generateBatch(int fromPatientId, int toPatientId, long timestamp, SplittableRandom random,
+            SampleBatch batch);
 }
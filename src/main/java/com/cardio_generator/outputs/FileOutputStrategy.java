@@ -1,20 +1,38 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.records.RecordTypes;
 
 //it was lowercase, the program couldn't compile.
 /**
  * FileOutputStrategy is an implementation of the OutputStrategy interface that outputs data to files.
- * It writes data to files in the specified base directory.
+ * It writes data to files in the specified base directory, one file per label.
  * The data is written in the format: "Patient ID: [patientId], Timestamp: [timestamp], Label: [label], Data: [data]"
- 
+ * Each label's file is opened once and kept open. Lines are collected in a per-label buffer and written
+ * when the buffer reaches the flush size or, at the latest, after the flush interval, so a sample costs
+ * no system call of its own. Only complete lines are ever written, so readers following the files never
+ * see half a record. Numeric samples and batches are formatted straight into the buffer, and a run of
+ * samples with the same label in a batch is buffered under a single lock. The strategy is safe to use
+ * from the simulator's scheduler threads, including virtual threads: the writers are guarded by locks
+ * rather than monitors, so a virtual thread waiting for a write does not pin its carrier. Call
+ * {@link #close()} on shutdown to write out what is still buffered.
  */
-public class FileOutputStrategy implements OutputStrategy {
+public final class FileOutputStrategy implements OutputStrategy, AutoCloseable {
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 250;
+    private static final int DEFAULT_FLUSH_SIZE = 64 * 1024;
 
     //BaseDirectory -> baseDirectory. The first letter of a non constant variable needs to be lowercase
     private String baseDirectory;
@@ -22,55 +40,280 @@ public class FileOutputStrategy implements OutputStrategy {
     //file_map was lowercase. Since it is final, it needs to be uppercase.
     public final ConcurrentHashMap<String, String> FILE_MAP = new ConcurrentHashMap<>();
 
+    private final ConcurrentHashMap<String, LabelWriter> writers = new ConcurrentHashMap<>();
+    private final int flushSize;
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
     /**
-     * Creates a new FileOutputStrategy with the specified base directory.
+     * Creates a new FileOutputStrategy with the specified base directory, flushing every 250 ms or
+     * every 64 KB per label, whichever comes first.
      *
      * @param baseDirectory the base directory where the files will be written
      */
     //it was lowercase, the program couldn't compile.
     public FileOutputStrategy(String baseDirectory) { //removed an empty line from below
+        this(baseDirectory, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_SIZE);
+    }
+
+    /**
+     * Creates a new FileOutputStrategy with the specified base directory and flush policy.
+     *
+     * @param baseDirectory       the base directory where the files will be written
+     * @param flushIntervalMillis the longest time a line stays buffered, in milliseconds
+     * @param flushSize           the number of buffered characters per label that triggers a write
+     */
+    public FileOutputStrategy(String baseDirectory, long flushIntervalMillis, int flushSize) {
+        if (flushIntervalMillis < 1 || flushSize < 1) {
+            throw new IllegalArgumentException("Flush interval and size must be positive");
+        }
         this.baseDirectory = baseDirectory;
+        this.flushSize = flushSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "file-output-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * The output method tries to create a directory, if it fails, it prints an error message.
-     * It sets the filePath variable and writes the data to the file.
-     * This class creates the files in the output directory.
-     * The data is written in the format: "Patient ID: [patientId], Timestamp: [timestamp], Label: [label], Data: [data]"
-     * If an error occurs while writing to the file, it prints an error message.
+     * Buffers one line for the file of the given label, creating the base directory and opening the
+     * file on first use. If an error occurs while opening or writing the file, it prints an error message.
      * @param patientId the ID of the patient
      * @param timestamp the timestamp of the data
      * @param label     the label of the data
      * @param data      the data to output
-     * @throws IOException if an error occurs while writing to the file
-     * @return void
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
+        LabelWriter writer = writerFor(label);
+        if (writer != null) {
+            writer.append(patientId, timestamp, label, data);
+        }
+    }
+
+    /**
+     * Buffers one line with a numeric value, formatted like the data strings of the generators.
+     * @param patientId the ID of the patient
+     * @param timestamp the timestamp of the data
+     * @param labelCode the {@link RecordTypes} code of the label of the data
+     * @param value     the value to output
+     */
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        LabelWriter writer = writerFor(RecordTypes.nameOf(labelCode));
+        if (writer != null) {
+            writer.append(patientId, timestamp, labelCode, value);
+        }
+    }
+
+    /**
+     * Buffers the lines of a batch, taking each label's lock once per run of samples with that label.
+     * @param batch the samples to output
+     */
+    @Override
+    public void output(SampleBatch batch) {
+        int[] labelCodes = batch.labelCodes();
+        int size = batch.size();
+        int from = 0;
+        while (from < size) {
+            int labelCode = labelCodes[from];
+            int to = from + 1;
+            while (to < size && labelCodes[to] == labelCode) {
+                to++;
+            }
+            LabelWriter writer = writerFor(RecordTypes.nameOf(labelCode));
+            if (writer != null) {
+                writer.append(batch, from, to);
+            }
+            from = to;
+        }
+    }
+
+    /** Returns the writer of a label, opening its file on first use, or null if it cannot be written. */
+    private LabelWriter writerFor(String label) {
+        if (closed) {
+            System.err.println("Error writing " + label + " data: output is closed");
+            return null;
+        }
+        LabelWriter writer = writers.get(label);
+        if (writer == null) {
+            try {
+                writer = writers.computeIfAbsent(label, this::open);
+            } catch (UncheckedIOException e) {
+                System.err.println("Error opening file for " + label + ": " + e.getCause().getMessage());
+                return null;
+            }
+            if (closed) {
+                // close() may have iterated the writers before this one was added; closing twice is harmless
+                writer.close();
+                System.err.println("Error writing " + label + " data: output is closed");
+                return null;
+            }
+        }
+        return writer;
+    }
+
+    private LabelWriter open(String label) {
+        if (closed) {
+            throw new UncheckedIOException(new IOException("output is closed"));
+        }
         try {
             // Create the directory
             Files.createDirectories(Paths.get(baseDirectory));
+            //file_map was lowercase. Since it is final, it needs to be uppercase.
+            String filePath = FILE_MAP.computeIfAbsent(label, k -> Paths.get(baseDirectory, label + ".txt").toString());
+            return new LabelWriter(filePath, FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND));
         } catch (IOException e) {
-            System.err.println("Error creating base directory: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the buffered lines of every label to their files.
+     */
+    public void flush() {
+        for (LabelWriter writer : writers.values()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes the buffered lines and closes the files. Later output is rejected.
+     */
+    @Override
+    public void close() {
+        if (closed) {
             return;
         }
-        // Set the filePath variable
-        //file_map was lowercase. Since it is final, it needs to be uppercase.
-        //FilePath -> filepath. The first letter of a non constant variable needs to be lowercase
-        String filePath = FILE_MAP.computeIfAbsent(label, k -> Paths.get(baseDirectory, label + ".txt").toString());
-
-        // Write the data to the file
-        try (PrintWriter out = new PrintWriter(
-                /**the line was longer than 100 columns, so I divided it in 2 lines
-                * needs to be lowercase
-                */
-                Files.newBufferedWriter(Paths.get(filePath), StandardOpenOption.CREATE, 
-                StandardOpenOption.APPEND))) {
-            //the line was longer than 100 columns, so I divided it in 2 lines
-            out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId,
-            timestamp, label, data);
-        } catch (Exception e) {
-            System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LabelWriter writer : writers.values()) {
+            writer.close();
+        }
+    }
+
+    /** The open file and pending lines of one label. */
+    private final class LabelWriter {
+        private final String filePath;
+        private final FileChannel channel;
+        private final StringBuilder pending = new StringBuilder();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        LabelWriter(String filePath, FileChannel channel) {
+            this.filePath = filePath;
+            this.channel = channel;
+        }
+
+        void append(int patientId, long timestamp, String label, String data) {
+            lock.lock();
+            try {
+                if (!isOpen()) {
+                    return;
+                }
+                appendPrefix(patientId, timestamp, label).append(data).append(System.lineSeparator());
+                flushIfFull();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void append(int patientId, long timestamp, int labelCode, double value) {
+            lock.lock();
+            try {
+                if (!isOpen()) {
+                    return;
+                }
+                SampleBatch.appendData(appendPrefix(patientId, timestamp, RecordTypes.nameOf(labelCode)), labelCode,
+                        value).append(System.lineSeparator());
+                flushIfFull();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Appends the samples {@code from} to {@code to} of a batch, which all have this writer's label. */
+        void append(SampleBatch batch, int from, int to) {
+            int[] patientIds = batch.patientIds();
+            long[] timestamps = batch.timestamps();
+            int labelCode = batch.labelCodes()[from];
+            double[] values = batch.values();
+            String label = RecordTypes.nameOf(labelCode);
+            lock.lock();
+            try {
+                if (!isOpen()) {
+                    return;
+                }
+                for (int i = from; i < to; i++) {
+                    SampleBatch.appendData(appendPrefix(patientIds[i], timestamps[i], label), labelCode, values[i])
+                            .append(System.lineSeparator());
+                    flushIfFull();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isOpen() {
+            if (!channel.isOpen()) {
+                System.err.println("Error writing to file " + filePath + ": output is closed");
+                return false;
+            }
+            return true;
+        }
+
+        private StringBuilder appendPrefix(int patientId, long timestamp, String label) {
+            return pending.append("Patient ID: ").append(patientId)
+                    .append(", Timestamp: ").append(timestamp)
+                    .append(", Label: ").append(label)
+                    .append(", Data: ");
+        }
+
+        private void flushIfFull() {
+            if (pending.length() >= flushSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            lock.lock();
+            try {
+                if (pending.length() == 0 || !channel.isOpen()) {
+                    return;
+                }
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(pending.toString());
+                pending.setLength(0);
+                try {
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                flush();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing file " + filePath + ": " + e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
         }
     }
-}
\ No newline at end of file
+}
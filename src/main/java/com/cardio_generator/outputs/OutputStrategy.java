@@ -1,8 +1,14 @@
 package com.cardio_generator.outputs;
 
+import com.records.RecordTypes;
+
 /**
  * The OutputStrategy interface represents a strategy for outputting data.
  * Implementations of this interface define how data should be outputted.
+ * Only the string variant of {@link #output(int, long, String, String)} has to be implemented;
+ * the numeric and batch variants, which the generators use, format the data and call it by default.
+ * Strategies that can write numbers or whole batches directly override them, so a value is formatted
+ * once where it is written, or never.
  */
 public interface OutputStrategy {
     /**
@@ -14,4 +20,33 @@ public interface OutputStrategy {
      * @param data the data to be outputted
      */
     void output(int patientId, long timestamp, String label, String data);
+
+    /**
+     * Outputs one numeric sample. By default the value is formatted with
+     * {@link SampleBatch#toData(int, double)} and passed on as a string.
+     *
+     * @param patientId the ID of the patient
+     * @param timestamp the timestamp of the data
+     * @param labelCode the {@link RecordTypes} code of the label of the data
+     * @param value the value to be outputted
+     */
+    default void output(int patientId, long timestamp, int labelCode, double value) {
+        output(patientId, timestamp, RecordTypes.nameOf(labelCode), SampleBatch.toData(labelCode, value));
+    }
+
+    /**
+     * Outputs all samples of a batch, in order. By default each sample is
+     * passed to {@link #output(int, long, int, double)}.
+     *
+     * @param batch the samples to be outputted
+     */
+    default void output(SampleBatch batch) {
+        int[] patientIds = batch.patientIds();
+        long[] timestamps = batch.timestamps();
+        int[] labelCodes = batch.labelCodes();
+        double[] values = batch.values();
+        for (int i = 0; i < batch.size(); i++) {
+            output(patientIds[i], timestamps[i], labelCodes[i], values[i]);
+        }
+    }
 }
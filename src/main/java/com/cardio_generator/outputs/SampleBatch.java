@@ -0,0 +1,160 @@
+package com.cardio_generator.outputs;
+
+import java.util.Arrays;
+
+import com.records.BinaryRecordFormat;
+import com.records.RecordTypes;
+
+/**
+ * A growable, column-wise batch of generated samples, filled by the batch
+ * methods of the generators and handed to {@link OutputStrategy#output(SampleBatch)}
+ * as a whole. Labels are kept as {@link RecordTypes} codes and values as
+ * {@code double}s; a text output formats them once when it writes them, see
+ * {@link #appendData(StringBuilder, int, double)}, a binary output not at all.
+ * A batch is meant to be reused by the thread that fills it: {@link #clear()}
+ * keeps the arrays, so a reused batch allocates nothing. It is not thread-safe.
+ */
+public final class SampleBatch {
+    private int[] patientIds;
+    private long[] timestamps;
+    private int[] labelCodes;
+    private double[] values;
+    private int size;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param initialCapacity the number of samples to make room for up front
+     */
+    public SampleBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        patientIds = new int[capacity];
+        timestamps = new long[capacity];
+        labelCodes = new int[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * Adds one sample.
+     *
+     * @param patientId the ID of the patient
+     * @param timestamp the timestamp of the sample
+     * @param labelCode the {@link RecordTypes} code of the label of the sample
+     * @param value     the value of the sample
+     */
+    public void add(int patientId, long timestamp, int labelCode, double value) {
+        int index = extend(1);
+        patientIds[index] = patientId;
+        timestamps[index] = timestamp;
+        labelCodes[index] = labelCode;
+        values[index] = value;
+    }
+
+    /**
+     * Appends room for a number of samples, to be filled through the column
+     * arrays, and returns the index of the first. The arrays returned by the
+     * accessors may be replaced by this call.
+     *
+     * @param count the number of samples to add
+     * @return the index of the first added sample
+     */
+    public int extend(int count) {
+        int start = size;
+        int required = size + count;
+        if (required > patientIds.length) {
+            int grown = Math.max(required, patientIds.length * 2);
+            patientIds = Arrays.copyOf(patientIds, grown);
+            timestamps = Arrays.copyOf(timestamps, grown);
+            labelCodes = Arrays.copyOf(labelCodes, grown);
+            values = Arrays.copyOf(values, grown);
+        }
+        size = required;
+        return start;
+    }
+
+    /**
+     * Removes all samples, keeping the arrays.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return the sample count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the patient ID column; entries from {@link #size()} on are unused.
+     *
+     * @return the patient IDs
+     */
+    public int[] patientIds() {
+        return patientIds;
+    }
+
+    /**
+     * Returns the timestamp column; entries from {@link #size()} on are unused.
+     *
+     * @return the timestamps
+     */
+    public long[] timestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Returns the label code column; entries from {@link #size()} on are unused.
+     *
+     * @return the {@link RecordTypes} codes of the labels
+     */
+    public int[] labelCodes() {
+        return labelCodes;
+    }
+
+    /**
+     * Returns the value column; entries from {@link #size()} on are unused.
+     *
+     * @return the values
+     */
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * Formats a value as the data string the generators have always produced
+     * for the label: saturation with a trailing {@code %}, alerts as
+     * {@code triggered} or {@code resolved}. This is the inverse of
+     * {@link BinaryRecordFormat#toValue(String)}.
+     *
+     * @param labelCode the {@link RecordTypes} code of the label
+     * @param value     the value of the sample
+     * @return the data string
+     */
+    public static String toData(int labelCode, double value) {
+        return appendData(new StringBuilder(24), labelCode, value).toString();
+    }
+
+    /**
+     * Appends a value formatted like {@link #toData(int, double)}, without
+     * creating a string for it.
+     *
+     * @param out       the builder to append to
+     * @param labelCode the {@link RecordTypes} code of the label
+     * @param value     the value of the sample
+     * @return the builder
+     */
+    public static StringBuilder appendData(StringBuilder out, int labelCode, double value) {
+        switch (labelCode) {
+            case RecordTypes.SATURATION:
+                return out.append(value).append('%');
+            case RecordTypes.ALERT:
+                return out.append(value != 0 ? "triggered" : "resolved");
+            default:
+                return out.append(value);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.records.BinaryRecordFormat;
+import com.records.RecordTypes;
+
+/**
+ * Reads a file written by the simulator's binary file output into a
+ * {@link DataStorage}. The file is read through a {@link FileChannel} into one
+ * reusable buffer and decoded with {@link BinaryRecordFormat.Decoder}; the
+ * stream's label codes are mapped to {@link RecordTypes} codes once per label,
+ * so reading allocates nothing per record.
+ */
+public class BinaryFileReader implements DataReader {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final String fileName;
+
+    public BinaryFileReader(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public void readData(DataStorage dataStorage) throws IOException {
+        BinaryRecordFormat.Decoder decoder = new BinaryRecordFormat.Decoder();
+        RecordTypeMapping mapping = new RecordTypeMapping(decoder, dataStorage);
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            boolean headerRead = false;
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (!headerRead) {
+                    if (buffer.remaining() < BinaryRecordFormat.HEADER_SIZE) {
+                        buffer.compact();
+                        continue;
+                    }
+                    BinaryRecordFormat.readHeader(buffer);
+                    headerRead = true;
+                }
+                decoder.decode(buffer, mapping);
+                buffer.compact();
+            }
+            if (!headerRead || buffer.position() != 0) {
+                throw new IOException("Truncated binary record file: " + fileName);
+            }
+        } catch (IOException e) {
+            throw new IOException("Error reading data from file: " + fileName, e);
+        }
+    }
+
+    /** Adds decoded records to the storage, translating label codes to record types. */
+    private static final class RecordTypeMapping implements BinaryRecordFormat.RecordHandler {
+        private final BinaryRecordFormat.Decoder decoder;
+        private final DataStorage dataStorage;
+        private int[] recordTypes = new int[0];
+        private int labelGeneration = -1;
+
+        RecordTypeMapping(BinaryRecordFormat.Decoder decoder, DataStorage dataStorage) {
+            this.decoder = decoder;
+            this.dataStorage = dataStorage;
+        }
+
+        @Override
+        public void onRecord(int patientId, long timestamp, int labelCode, double value) {
+            if (labelGeneration != decoder.labelGeneration()) {
+                labelGeneration = decoder.labelGeneration();
+                Arrays.fill(recordTypes, -1);
+            }
+            if (labelCode >= recordTypes.length) {
+                int oldLength = recordTypes.length;
+                recordTypes = Arrays.copyOf(recordTypes, Math.max(labelCode + 1, oldLength * 2));
+                Arrays.fill(recordTypes, oldLength, recordTypes.length, -1);
+            }
+            int recordType = recordTypes[labelCode];
+            if (recordType < 0) {
+                recordType = RecordTypes.codeOf(decoder.labelOf(labelCode));
+                recordTypes[labelCode] = recordType;
+            }
+            dataStorage.addPatientData(patientId, value, recordType, timestamp);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.data_management;
+
+/**
+ * The outcome of one {@link RetentionCompactor} pass: how many samples and
+ * rollups were evicted, how much memory that reclaimed and how long it took.
+ */
+public class CompactionReport {
+    private final int patientCount;
+    private final long evictedSampleCount;
+    private final long evictedRollupCount;
+    private final long reclaimedBytes;
+    private final long elapsedNanos;
+
+    /**
+     * Creates a report.
+     *
+     * @param patientCount       the number of patients compacted
+     * @param evictedSampleCount the number of raw samples evicted
+     * @param evictedRollupCount the number of expired rollups dropped
+     * @param reclaimedBytes     the estimated heap freed, net of the rollups
+     *                           created for the evicted samples
+     * @param elapsedNanos       the wall-clock duration of the pass, in
+     *                           nanoseconds
+     */
+    public CompactionReport(int patientCount, long evictedSampleCount, long evictedRollupCount, long reclaimedBytes,
+            long elapsedNanos) {
+        this.patientCount = patientCount;
+        this.evictedSampleCount = evictedSampleCount;
+        this.evictedRollupCount = evictedRollupCount;
+        this.reclaimedBytes = reclaimedBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getPatientCount() {
+        return patientCount;
+    }
+
+    public long getEvictedSampleCount() {
+        return evictedSampleCount;
+    }
+
+    public long getEvictedRollupCount() {
+        return evictedRollupCount;
+    }
+
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Compacted %d patients in %.1f ms: evicted %d samples and %d rollups, "
+                + "reclaimed %.1f MB", patientCount, elapsedNanos / 1_000_000.0, evictedSampleCount,
+                evictedRollupCount, reclaimedBytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,211 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, compressed run of samples, encoded as in Facebook's Gorilla
+ * time-series store: timestamps as delta-of-deltas with variable-length
+ * prefixes, and values as the XOR with the previous value, storing only the
+ * bits between the leading and trailing zeros.
+ * Regularly sampled timestamps shrink from 64 bits to a few bits each, and
+ * slowly changing values (saturation, pressure) to a few bits as well, while
+ * noisy values such as ECG keep most of their 64 bits.
+ */
+final class CompressedBlock {
+    private static final int OBJECT_HEADER_BYTES = 32;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final long[] words;
+    private final int count;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+
+    private CompressedBlock(long[] words, int count, long firstTimestamp, long lastTimestamp) {
+        this.words = words;
+        this.count = count;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    /**
+     * Compresses the first {@code count} samples of the given arrays.
+     *
+     * @param timestamps the timestamps, in ascending order
+     * @param values     the values
+     * @param count      the number of samples, at least one
+     * @return the compressed block
+     */
+    static CompressedBlock encode(long[] timestamps, double[] values, int count) {
+        BitWriter out = new BitWriter(count * 2);
+        out.write(timestamps[0], 64);
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = timestamps[i] - timestamps[i - 1];
+            long deltaOfDelta = delta - previousDelta;
+            previousDelta = delta;
+            if (deltaOfDelta == 0) {
+                out.write(0, 1);
+            } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+                out.write(0b10, 2);
+                out.write(deltaOfDelta + 63, 7);
+            } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+                out.write(0b110, 3);
+                out.write(deltaOfDelta + 255, 9);
+            } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+                out.write(0b1110, 4);
+                out.write(deltaOfDelta + 2047, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(deltaOfDelta, 64);
+            }
+        }
+        long previousBits = Double.doubleToRawLongBits(values[0]);
+        out.write(previousBits, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previousBits;
+            previousBits = bits;
+            if (xor == 0) {
+                out.write(0, 1);
+                continue;
+            }
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // the meaningful bits fit in the previous window
+                out.write(0b10, 2);
+                out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int length = 64 - leading - trailing;
+                out.write(0b11, 2);
+                out.write(leading, 5);
+                out.write(length - 1, 6);
+                out.write(xor >>> trailing, length);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return new CompressedBlock(out.toWords(), count, timestamps[0], timestamps[count - 1]);
+    }
+
+    /**
+     * Decompresses the samples into the given arrays.
+     *
+     * @param timestamps receives the timestamps, at least {@link #count()} long
+     * @param values     receives the values, at least {@link #count()} long
+     */
+    void decode(long[] timestamps, double[] values) {
+        BitReader in = new BitReader(words);
+        long timestamp = in.read(64);
+        timestamps[0] = timestamp;
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (in.read(1) == 0) {
+                deltaOfDelta = 0;
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.read(7) - 63;
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.read(9) - 255;
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.read(12) - 2047;
+            } else {
+                deltaOfDelta = in.read(64);
+            }
+            delta += deltaOfDelta;
+            timestamp += delta;
+            timestamps[i] = timestamp;
+        }
+        long bits = in.read(64);
+        values[0] = Double.longBitsToDouble(bits);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    int length = (int) in.read(6) + 1;
+                    trailing = 64 - leading - length;
+                }
+                bits ^= in.read(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(bits);
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long footprintBytes() {
+        return OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + 8L * words.length;
+    }
+
+    private static long mask(int bits) {
+        return bits == 64 ? -1L : (1L << bits) - 1;
+    }
+
+    /** Appends bit strings, most significant bit first, to a growable {@code long[]}. */
+    private static final class BitWriter {
+        private long[] words;
+        private long position;
+
+        BitWriter(int initialWords) {
+            words = new long[Math.max(initialWords, 4)];
+        }
+
+        void write(long value, int bits) {
+            value &= mask(bits);
+            int word = (int) (position >>> 6);
+            int free = 64 - (int) (position & 63);
+            if (word + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            if (bits <= free) {
+                words[word] |= value << (free - bits);
+            } else {
+                words[word] |= value >>> (bits - free);
+                words[word + 1] |= value << (64 - (bits - free));
+            }
+            position += bits;
+        }
+
+        long[] toWords() {
+            return Arrays.copyOf(words, (int) ((position + 63) >>> 6));
+        }
+    }
+
+    /** Reads the bit strings written by a {@link BitWriter}. */
+    private static final class BitReader {
+        private final long[] words;
+        private long position;
+
+        BitReader(long[] words) {
+            this.words = words;
+        }
+
+        long read(int bits) {
+            if (bits == 0) {
+                return 0;
+            }
+            int word = (int) (position >>> 6);
+            int free = 64 - (int) (position & 63);
+            position += bits;
+            if (bits <= free) {
+                return (words[word] >>> (free - bits)) & mask(bits);
+            }
+            int rest = bits - free;
+            return ((words[word] & mask(free)) << rest) | (words[word + 1] >>> (64 - rest));
+        }
+    }
+}
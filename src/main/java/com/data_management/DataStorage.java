@@ -1,26 +1,36 @@
 package com.data_management;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import com.alerts.Alert;
 import com.alerts.AlertGenerator;
+import com.alerts.BatchAlertEvaluator;
+import com.alerts.BatchEvaluationReport;
+import com.records.RecordTypes;
 
 /**
  * Manages storage and retrieval of patient data within a healthcare monitoring
  * system.
  * This class serves as a repository for all patient records, organized by
  * patient IDs.
+ * The storage is safe for concurrent use, so several {@link DataReader}s can
+ * feed it while alerts are evaluated. Each {@link Patient} has its own lock,
+ * so writers for different patients never contend, and readers usually do not
+ * block writers: see {@link Patient} for when they do.
  */
 public class DataStorage {
-    private Map<Integer, Patient> patientMap; // Stores patient objects indexed by their unique patient ID.
+    private ConcurrentHashMap<Integer, Patient> patientMap; // Stores patient objects indexed by their unique patient ID.
+    private final List<PatientDataListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a new instance of DataStorage, initializing the underlying storage
      * structure.
      */
     public DataStorage() {
-        this.patientMap = new HashMap<>();
+        this.patientMap = new ConcurrentHashMap<>();
     }
 
     /**
@@ -37,12 +47,46 @@ public class DataStorage {
      *                         milliseconds since the Unix epoch
      */
     public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        addPatientData(patientId, measurementValue, RecordTypes.codeOf(recordType), timestamp);
+    }
+
+    /**
+     * Adds patient data whose record type is given as a {@link RecordTypes}
+     * code.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the record type code
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    public void addPatientData(int patientId, double measurementValue, int recordType, long timestamp) {
         Patient patient = patientMap.get(patientId);
         if (patient == null) {
-            patient = new Patient(patientId);
-            patientMap.put(patientId, patient);
+            patient = patientMap.computeIfAbsent(patientId, Patient::new);
         }
         patient.addRecord(measurementValue, recordType, timestamp);
+        for (PatientDataListener listener : listeners) {
+            listener.onPatientData(patientId, recordType, measurementValue, timestamp);
+        }
+    }
+
+    /**
+     * Registers a listener that is notified of every sample added from now on.
+     *
+     * @param listener the listener to notify
+     */
+    public void addListener(PatientDataListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops notifying a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(PatientDataListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -66,6 +110,70 @@ public class DataStorage {
         return new ArrayList<>(); // return an empty list if no patient is found
     }
 
+    /**
+     * Retrieves the records of a single record type for a specific patient,
+     * filtered by a time range.
+     *
+     * @param patientId  the unique identifier of the patient
+     * @param recordType the record type, e.g. "ECG"
+     * @param startTime  the start of the time range, in milliseconds since the
+     *                   Unix epoch
+     * @param endTime    the end of the time range, in milliseconds since the Unix
+     *                   epoch
+     * @return a list of PatientRecord objects of the given type within the range
+     */
+    public List<PatientRecord> getRecords(int patientId, String recordType, long startTime, long endTime) {
+        Patient patient = patientMap.get(patientId);
+        if (patient != null) {
+            return patient.getRecords(recordType, startTime, endTime);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Opens a cursor over the records of a single record type for a specific
+     * patient within a time range, see
+     * {@link Patient#getCursor(int, long, long)}.
+     *
+     * @param patientId  the unique identifier of the patient
+     * @param recordType the record type, e.g. "ECG"
+     * @param startTime  the start of the time range, in milliseconds since the
+     *                   Unix epoch
+     * @param endTime    the end of the time range, in milliseconds since the Unix
+     *                   epoch
+     * @return a cursor positioned before the first record in range; it returns
+     *         nothing if the patient is unknown
+     */
+    public RecordCursor getCursor(int patientId, String recordType, long startTime, long endTime) {
+        return new RecordCursor().open(patientMap.get(patientId), RecordTypes.find(recordType), startTime,
+                endTime);
+    }
+
+    /**
+     * Aggregates the samples of a single record type for a specific patient
+     * into buckets of the given length, each holding the minimum, maximum, mean
+     * and count of its samples. Buckets of whole minutes are answered from
+     * rollups maintained as samples arrive, see
+     * {@link Patient#aggregate(int, long, long, long)}.
+     *
+     * @param patientId    the unique identifier of the patient
+     * @param recordType   the record type, e.g. "ECG"
+     * @param startTime    the start of the time range, in milliseconds since the
+     *                     Unix epoch
+     * @param endTime      the end of the time range, in milliseconds since the
+     *                     Unix epoch
+     * @param bucketMillis the length of a bucket
+     * @return the non-empty buckets in time order
+     */
+    public List<Rollup> aggregate(int patientId, String recordType, long startTime, long endTime,
+            long bucketMillis) {
+        Patient patient = patientMap.get(patientId);
+        if (patient != null) {
+            return patient.aggregate(recordType, startTime, endTime, bucketMillis);
+        }
+        return new ArrayList<>();
+    }
+
     /**
      * Retrieves a collection of all patients stored in the data storage.
      *
@@ -75,6 +183,52 @@ public class DataStorage {
         return new ArrayList<>(patientMap.values());
     }
 
+    /**
+     * Passes every stored patient to the given action, without copying the
+     * patients into a list. Patients added meanwhile may or may not be visited.
+     *
+     * @param action the action to run for each patient
+     */
+    public void forEachPatient(Consumer<Patient> action) {
+        patientMap.values().forEach(action);
+    }
+
+    /**
+     * Returns the number of stored patients.
+     *
+     * @return the number of patients
+     */
+    public int getPatientCount() {
+        return patientMap.size();
+    }
+
+    /**
+     * Estimates the heap used by the stored records of all patients.
+     * Divided by {@link #getRecordCount()} this gives the per-sample footprint.
+     *
+     * @return the estimated footprint in bytes
+     */
+    public long getFootprintBytes() {
+        long bytes = 0;
+        for (Patient patient : patientMap.values()) {
+            bytes += patient.getFootprintBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the total number of records stored for all patients.
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        long count = 0;
+        for (Patient patient : patientMap.values()) {
+            count += patient.getRecordCount();
+        }
+        return count;
+    }
+
     /**
      * The main method for the DataStorage class.
      * Initializes the system, reads data into storage, and continuously monitors
@@ -103,9 +257,11 @@ public class DataStorage {
         // Initialize the AlertGenerator with the storage
         AlertGenerator alertGenerator = new AlertGenerator(storage);
 
-        // Evaluate all patients' data to check for conditions that may trigger alerts
-        for (Patient patient : storage.getAllPatients()) {
-            alertGenerator.evaluateData(patient);
+        // Evaluate all patients' data in parallel to check for conditions that may trigger alerts
+        BatchEvaluationReport report = new BatchAlertEvaluator(alertGenerator).evaluateAll(storage.getAllPatients());
+        for (Alert alert : report.getAlerts()) {
+            System.out.println("ALERT: " + alert);
         }
+        System.out.println(report);
     }
 }
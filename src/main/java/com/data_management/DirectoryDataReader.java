@@ -0,0 +1,168 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Imports a whole directory of simulator output, i.e. the {@code *.txt} files
+ * written by the file output strategy, one file per label.
+ * Each file is memory-mapped and split at line breaks into chunks that are
+ * parsed in parallel, each by its own {@link RecordLineParser}. Parsed chunks
+ * are added to the storage in file order, so series are still filled by
+ * appends, while the next chunks are being parsed. Alert files are imported
+ * too, with {@code triggered} and {@code resolved} stored as 1 and 0.
+ * The throughput of the last import is available from {@link #getLastReport()}.
+ */
+public class DirectoryDataReader implements DataReader {
+    private static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+    // a mapping is limited to 2 GB; larger files are mapped in windows
+    private static final long MAX_MAPPING_SIZE = 1L << 30;
+
+    private final Path directory;
+    private final int threads;
+    private final int chunkSize;
+    private volatile ImportReport lastReport;
+
+    /**
+     * Creates a reader using one parser thread per available processor.
+     *
+     * @param directory the directory containing the files to import
+     */
+    public DirectoryDataReader(String directory) {
+        this(directory, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a reader.
+     *
+     * @param directory the directory containing the files to import
+     * @param threads   the number of parser threads
+     * @param chunkSize the approximate number of bytes parsed per task
+     */
+    public DirectoryDataReader(String directory, int threads, int chunkSize) {
+        if (threads < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Threads and chunk size must be positive");
+        }
+        this.directory = Path.of(directory);
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void readData(DataStorage dataStorage) throws IOException {
+        long start = System.nanoTime();
+        List<Path> files = listFiles();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayDeque<Future<RecordBuffer>> parsing = new ArrayDeque<>();
+        long bytes = 0;
+        long records = 0;
+        try {
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    bytes += size;
+                    long offset = 0;
+                    while (offset < size) {
+                        long length = Math.min(MAX_MAPPING_SIZE, size - offset);
+                        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                        boolean lastWindow = offset + length == size;
+                        int end = lastWindow ? (int) length : lineEndBefore(mapped, (int) length, file);
+                        for (int from = 0; from < end; ) {
+                            int chunkStart = from;
+                            int to = lineEndAfter(mapped, (int) Math.min((long) from + chunkSize, end), end);
+                            parsing.add(pool.submit(() -> parse(mapped, chunkStart, to, file)));
+                            // keep a bounded number of parsed chunks waiting to be added
+                            while (parsing.size() > 2 * threads) {
+                                records += addNext(parsing, dataStorage);
+                            }
+                            from = to;
+                        }
+                        offset += end;
+                    }
+                }
+            }
+            while (!parsing.isEmpty()) {
+                records += addNext(parsing, dataStorage);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        lastReport = new ImportReport(files.size(), bytes, records, System.nanoTime() - start, threads);
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.txt")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static RecordBuffer parse(MappedByteBuffer mapped, int from, int to, Path file) throws IOException {
+        // simulator lines are about 80 bytes, so the buffer rarely grows
+        RecordBuffer buffer = new RecordBuffer((to - from) / 64);
+        new RecordLineParser(file.toString()).parse(mapped, from, to, true, buffer);
+        return buffer;
+    }
+
+    private static long addNext(ArrayDeque<Future<RecordBuffer>> parsing, DataStorage dataStorage)
+            throws IOException {
+        try {
+            RecordBuffer buffer = parsing.poll().get();
+            buffer.addTo(dataStorage);
+            return buffer.size();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("Error importing data", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing data", e);
+        }
+    }
+
+    /** Returns the index after the first line break at or after {@code from}, or {@code end}. */
+    private static int lineEndAfter(MappedByteBuffer mapped, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (mapped.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /** Returns the index after the last line break before {@code end}. */
+    private static int lineEndBefore(MappedByteBuffer mapped, int end, Path file) throws IOException {
+        for (int i = end - 1; i >= 0; i--) {
+            if (mapped.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Line longer than " + MAX_MAPPING_SIZE + " bytes in file: " + file);
+    }
+
+    /**
+     * Returns the size and throughput of the last completed import.
+     *
+     * @return the report of the last import, or {@code null} if none completed
+     */
+    public ImportReport getLastReport() {
+        return lastReport;
+    }
+}
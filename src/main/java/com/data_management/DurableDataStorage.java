@@ -0,0 +1,210 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link DataStorage} that survives restarts. Every sample is appended to a
+ * {@link WriteAheadLog} before it is stored, and the whole storage is
+ * periodically written to a {@link StorageSnapshot}, after which the log
+ * segments the snapshot covers are deleted. On construction the latest
+ * snapshot is loaded and only the log written after it is replayed; how long
+ * that took is available from {@link #getRecoveryReport()}.
+ * <p>
+ * Samples are stored as soon as they are logged; {@link #sync()} waits until
+ * they are also on disk. Adding samples only shares a lock with snapshots,
+ * which hold it exclusively while they copy one patient at a time, so each
+ * patient is copied together with the exact log position it reflects. Replay
+ * therefore skips logged samples by their sequence number, and identical
+ * readings are all restored.
+ */
+public final class DurableDataStorage extends DataStorage implements AutoCloseable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final long COMMIT_INTERVAL_MILLIS = 10;
+
+    private final Path directory;
+    private final WriteAheadLog log;
+    private final ReentrantReadWriteLock snapshotBarrier = new ReentrantReadWriteLock();
+    private final RecoveryReport recoveryReport;
+    private final ScheduledExecutorService snapshotter;
+
+    /**
+     * Opens a storage in the given directory without periodic snapshots,
+     * restoring the data stored there before.
+     *
+     * @param directory the directory of the log and snapshots
+     * @throws IOException if the stored data cannot be read
+     */
+    public DurableDataStorage(String directory) throws IOException {
+        this(directory, 0);
+    }
+
+    /**
+     * Opens a storage in the given directory, restoring the data stored there
+     * before.
+     *
+     * @param directory              the directory of the log and snapshots
+     * @param snapshotIntervalMillis the time between snapshots, or 0 to only
+     *                               take them through {@link #snapshot()}
+     * @throws IOException if the stored data cannot be read
+     */
+    public DurableDataStorage(String directory, long snapshotIntervalMillis) throws IOException {
+        this.directory = Path.of(directory);
+        Files.createDirectories(this.directory);
+        long start = System.nanoTime();
+        Path snapshot = latestSnapshot();
+        StorageSnapshot.Coverage coverage = snapshot == null ? new StorageSnapshot.Coverage(0, 0, 0, Map.of())
+                : StorageSnapshot.load(snapshot, this::restore);
+        long[] counts = new long[2]; // replayed, skipped
+        long lastSequence = WriteAheadLog.replay(this.directory, coverage.startSequence,
+                (sequence, patientId, recordType, value, timestamp) -> {
+                    if (coverage.contains(sequence, patientId)) {
+                        counts[1]++;
+                        return;
+                    }
+                    restore(patientId, recordType, value, timestamp);
+                    counts[0]++;
+                });
+        this.recoveryReport = new RecoveryReport(coverage.recordCount, counts[0], counts[1], System.nanoTime() - start);
+        this.log = new WriteAheadLog(this.directory, Math.max(lastSequence, coverage.endSequence), SEGMENT_BYTES,
+                COMMIT_INTERVAL_MILLIS);
+        if (snapshotIntervalMillis > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "storage-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    System.err.println("Error writing snapshot: " + e.getMessage());
+                }
+            }, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotter = null;
+        }
+    }
+
+    private void restore(int patientId, int recordType, double value, long timestamp) {
+        super.addPatientData(patientId, value, recordType, timestamp);
+    }
+
+    /** Copies a patient's series while no sample is being added, with the sequence number they reflect. */
+    private StorageSnapshot.PatientCopy copyQuiescent(Patient patient) {
+        snapshotBarrier.writeLock().lock();
+        try {
+            return new StorageSnapshot.PatientCopy(log.getSequence(), patient.copySeries());
+        } finally {
+            snapshotBarrier.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Logs and stores patient data.
+     *
+     * @throws UncheckedIOException if the write-ahead log failed or is closed;
+     *                              the sample is then not stored
+     */
+    @Override
+    public void addPatientData(int patientId, double measurementValue, int recordType, long timestamp) {
+        snapshotBarrier.readLock().lock();
+        try {
+            log.append(patientId, recordType, measurementValue, timestamp);
+            super.addPatientData(patientId, measurementValue, recordType, timestamp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            snapshotBarrier.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until every sample added before this call is on disk.
+     *
+     * @throws IOException if the write-ahead log failed
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Writes a snapshot of the storage, then deletes older snapshots and the
+     * log segments the snapshot makes unnecessary. Samples can be added while
+     * the snapshot is written.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void snapshot() throws IOException {
+        long startSequence = quiescentSequence();
+        Path file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, startSequence, SNAPSHOT_SUFFIX));
+        StorageSnapshot.write(this, file, startSequence, this::copyQuiescent, this::quiescentSequence);
+        for (Path older : snapshots()) {
+            if (!older.equals(file)) {
+                Files.deleteIfExists(older);
+            }
+        }
+        log.deleteSegmentsUpTo(startSequence);
+    }
+
+    /** Returns the last logged sequence number at a moment when every logged sample is also stored. */
+    private long quiescentSequence() {
+        snapshotBarrier.writeLock().lock();
+        try {
+            return log.getSequence();
+        } finally {
+            snapshotBarrier.writeLock().unlock();
+        }
+    }
+
+    private Path latestSnapshot() throws IOException {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            stream.forEach(snapshots::add);
+        }
+        // names hold zero-padded sequence numbers, so they sort by age
+        snapshots.sort(null);
+        return snapshots;
+    }
+
+    /**
+     * Returns how the data was restored when this storage was opened.
+     *
+     * @return the recovery report
+     */
+    public RecoveryReport getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    /**
+     * Stops taking snapshots and closes the write-ahead log after writing the
+     * samples still buffered.
+     *
+     * @throws IOException if the buffered samples could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+        }
+        log.close();
+    }
+}
@@ -1,13 +1,21 @@
 package com.data_management;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
+/**
+ * Reads the text files written by the simulator's file output, one record per
+ * line, into a {@link DataStorage}.
+ * The file is read through a {@link FileChannel} into a single reusable buffer
+ * and parsed in place by a {@link RecordLineParser}, so reading allocates no
+ * per-line Strings or arrays.
+ */
 public class FileReader implements DataReader{
+    private static final int BUFFER_SIZE = 1 << 20;
+
     private String fileName;
 
     public FileReader(String fileName) {
@@ -16,28 +24,22 @@ public class FileReader implements DataReader{
 
     @Override
     public void readData(DataStorage dataStorage) throws IOException{
-        try {
-            File file = new File(fileName);
-            Reader reader = new java.io.FileReader(file);
-            BufferedReader bufferedReader = new BufferedReader(reader);
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                String[] parts = line.split(", ");
-                if (parts.length != 4) {
-                    bufferedReader.close();
-                    throw new IOException("Invalid data format in file: " + fileName);
+        RecordLineParser parser = new RecordLineParser(fileName);
+        PatientDataListener target = (patientId, recordType, value, timestamp) ->
+                dataStorage.addPatientData(patientId, value, recordType, timestamp);
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(buffer) < 0;
+                int parsed = parser.parse(buffer, 0, buffer.position(), endOfInput, target);
+                if (parsed == 0 && !buffer.hasRemaining()) {
+                    throw new IOException("Line longer than " + BUFFER_SIZE + " bytes in file: " + fileName);
                 }
-                parts[0] = parts[0].substring("Patient ID: ".length());
-                parts[1] = parts[1].substring("Timestamp: ".length());
-                parts[2] = parts[2].substring("Label: ".length());
-                parts[3] = parts[3].substring("Data: ".length());
-                int patientId = Integer.parseInt(parts[0]);
-                long timestamp = Long.parseLong(parts[1]);
-                String recordType = parts[2];
-                double measurementValue = Double.parseDouble(parts[3]);
-                dataStorage.addPatientData(patientId, measurementValue, recordType, timestamp);
+                // carry the incomplete last line over to the next read
+                buffer.limit(buffer.position()).position(parsed);
+                buffer.compact();
             }
-            bufferedReader.close();               
         } catch (Exception e) {
             throw new IOException("Error reading data from file: " + fileName, e);
         }
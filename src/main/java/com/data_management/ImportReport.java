@@ -0,0 +1,75 @@
+package com.data_management;
+
+/**
+ * The outcome of a {@link DirectoryDataReader} import: how much was read and
+ * how fast.
+ */
+public class ImportReport {
+    private final int fileCount;
+    private final long byteCount;
+    private final long recordCount;
+    private final long elapsedNanos;
+    private final int parallelism;
+
+    /**
+     * Creates a report.
+     *
+     * @param fileCount    the number of files imported
+     * @param byteCount    the total size of the imported files
+     * @param recordCount  the number of records added to the storage
+     * @param elapsedNanos the wall-clock duration of the import, in nanoseconds
+     * @param parallelism  the number of parser threads used
+     */
+    public ImportReport(int fileCount, long byteCount, long recordCount, long elapsedNanos, int parallelism) {
+        this.fileCount = fileCount;
+        this.byteCount = byteCount;
+        this.recordCount = recordCount;
+        this.elapsedNanos = elapsedNanos;
+        this.parallelism = parallelism;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the read throughput of the import.
+     *
+     * @return the number of megabytes (2^20 bytes) read per second
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : byteCount / (1024.0 * 1024.0) / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Returns the record throughput of the import.
+     *
+     * @return the number of records imported per second
+     */
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : recordCount / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d records from %d files (%.1f MB) in %.1f ms with %d threads "
+                + "(%.0f MB/s, %.0f records/s)", recordCount, fileCount, byteCount / (1024.0 * 1024.0),
+                elapsedNanos / 1_000_000.0, parallelism, getMegabytesPerSecond(), getRecordsPerSecond());
+    }
+}
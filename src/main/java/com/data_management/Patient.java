@@ -1,27 +1,63 @@
 package com.data_management;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import com.records.RecordTypes;
 
 /**
  * Represents a patient and manages their medical records.
  * This class stores patient-specific data, allowing for the addition and
  * retrieval
  * of medical records based on specified criteria.
+ * Records are kept in one timestamp-ordered, columnar {@link TimeSeries} per
+ * record type; {@link PatientRecord} objects are only created when records are
+ * read.
+ * A patient is safe for concurrent use: writers take this patient's own write
+ * lock, so ingestion for different patients never contends, and readers use
+ * optimistic reads that are validated afterwards, so they return a consistent
+ * snapshot without blocking writers. A read is retried optimistically a few
+ * times when a write races with it; only a read that keeps racing, typically a
+ * long range read during steady ingestion, takes the read lock and then blocks
+ * this patient's writers until it completes.
+ * Every sample is also folded into a per-minute {@link Rollup} of its type,
+ * which answers {@link #aggregate} queries without reading raw samples. Old
+ * samples can be evicted by a {@link RetentionCompactor}; they then remain
+ * only in the rollups.
  */
 public class Patient {
+    /** The length of the rollups maintained for every record type. */
+    public static final long ROLLUP_INTERVAL_MILLIS = 60_000L;
+
     private int patientId;
-    private List<PatientRecord> patientRecords;
+    private TimeSeries[] seriesByType; // indexed by record type code, see RecordTypes
+    private RollupSeries[] rollupsByType = new RollupSeries[0]; // per-minute rollups, same indexing
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private long appendSequence;
+    private final StampedLock lock = new StampedLock();
 
     /**
      * Constructs a new Patient with a specified ID.
-     * Initializes an empty list of patient records.
+     * Initializes an empty set of record series.
      *
      * @param patientId the unique identifier for the patient
      */
     public Patient(int patientId) {
         this.patientId = patientId;
-        this.patientRecords = new ArrayList<>();
+        this.seriesByType = new TimeSeries[0];
+    }
+
+    /**
+     * Returns the unique identifier of this patient.
+     *
+     * @return the patient ID
+     */
+    public int getPatientId() {
+        return patientId;
     }
 
     /**
@@ -36,14 +72,264 @@ public class Patient {
      *                         milliseconds since UNIX epoch
      */
     public void addRecord(double measurementValue, String recordType, long timestamp) {
-        PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp);
-        this.patientRecords.add(record);
+        addRecord(measurementValue, RecordTypes.codeOf(recordType), timestamp);
+    }
+
+    /**
+     * Adds a new record whose type is given as a {@link RecordTypes} code.
+     *
+     * @param measurementValue the measurement value to store in the record
+     * @param recordType       the record type code
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since UNIX epoch
+     */
+    public void addRecord(double measurementValue, int recordType, long timestamp) {
+        long stamp = lock.writeLock();
+        try {
+            seriesFor(recordType).add(timestamp, measurementValue, ++appendSequence);
+            rollupsByType[recordType].add(timestamp, measurementValue);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs a read of this patient's series. The read is attempted
+     * optimistically, without blocking writers, and its result kept only if no
+     * write happened meanwhile. After {@link #OPTIMISTIC_READ_ATTEMPTS} raced
+     * attempts it is repeated under the read lock, which blocks writers.
+     * <p>
+     * A read racing with a write can see a series' arrays half updated and fail
+     * with an out-of-bounds index, a chunk that was just sealed or unsealed
+     * ({@code NullPointerException}, or the {@code IllegalStateException} of a
+     * chunk that is neither raw nor sealed) or a negative size. Such a failure
+     * counts as a raced attempt only if the stamp no longer validates; any other
+     * exception, or one thrown while no write happened, is a real error and is
+     * thrown on.
+     */
+    private <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0L) {
+                break; // write locked: wait for the writer below
+            }
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (IndexOutOfBoundsException | NullPointerException | IllegalStateException
+                    | NegativeArraySizeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the samples of every record type, e.g. for a snapshot. The copies
+     * are taken together, so they are consistent with each other.
+     *
+     * @return one copy per record type with samples
+     */
+    List<TimeSeries.Copy> copySeries() {
+        return read(() -> {
+            List<TimeSeries.Copy> copies = new ArrayList<>();
+            for (TimeSeries series : seriesByType) {
+                if (series != null && series.size() > 0) {
+                    copies.add(series.copy());
+                }
+            }
+            return copies;
+        });
+    }
+
+    /**
+     * Applies a retention policy: drops the samples older than their raw
+     * retention, a whole chunk at a time, and the rollups older than their
+     * retention. The rollups of evicted samples stay, so aggregates over
+     * evicted time ranges remain available. The evicted chunks are found
+     * without holding the write lock, which is only taken to unlink them, so
+     * writers are blocked for a few pointer moves per series.
+     *
+     * @param policy the retention policy
+     * @param now    the current time, in milliseconds since UNIX epoch
+     * @param tally  receives the number of evicted samples and rollups and the
+     *               bytes reclaimed
+     */
+    void compact(RetentionPolicy policy, long now, RetentionCompactor.Tally tally) {
+        TimeSeries[] series = read(() -> seriesByType.clone());
+        for (int type = 0; type < series.length; type++) {
+            long rawRetention = policy.getRawRetentionMillis(type);
+            if (series[type] == null || rawRetention == RetentionPolicy.FOREVER) {
+                continue;
+            }
+            TimeSeries current = series[type];
+            long rollupRetention = Math.max(rawRetention, policy.getRollupRetentionMillis(type));
+            CompressedBlock[] evictable = read(() -> current.evictableBlocks(now - rawRetention));
+            long stamp = lock.writeLock();
+            try {
+                RollupSeries rollups = rollupsByType[type];
+                long before = current.footprintBytes() + rollups.footprintBytes();
+                if (current.evict(evictable)) {
+                    tally.evictedSamples += (long) evictable.length * TimeSeries.CHUNK_SIZE;
+                }
+                if (rollupRetention != RetentionPolicy.FOREVER) {
+                    tally.evictedRollups += rollups.evictBefore(now - rollupRetention);
+                }
+                tally.reclaimedBytes += before - current.footprintBytes() - rollups.footprintBytes();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the samples of a single record type into buckets of the given
+     * length: the minimum, maximum, mean and count of the samples in each
+     * bucket. Buckets are aligned to multiples of their length since the epoch,
+     * and the time range is widened to whole buckets; empty buckets are left
+     * out.
+     * <p>
+     * Buckets that are a whole number of minutes are merged from the per-minute
+     * rollups this patient maintains as samples arrive, so a day of per-minute
+     * buckets reads 1,440 rollups however many samples there are, and the
+     * rollups of samples evicted by a {@link RetentionCompactor} still count.
+     * Shorter buckets are computed from the raw samples.
+     *
+     * @param recordType   the record type code, see {@link RecordTypes}
+     * @param startTime    the start of the time range, in milliseconds since
+     *                     UNIX epoch
+     * @param endTime      the end of the time range, in milliseconds since UNIX
+     *                     epoch
+     * @param bucketMillis the length of a bucket
+     * @return the non-empty buckets in time order
+     */
+    public List<Rollup> aggregate(int recordType, long startTime, long endTime, long bucketMillis) {
+        if (bucketMillis < 1) {
+            throw new IllegalArgumentException("Bucket length must be positive");
+        }
+        long first = Math.floorDiv(startTime, bucketMillis) * bucketMillis;
+        long lastBucket = Math.floorDiv(endTime, bucketMillis) * bucketMillis;
+        long last = lastBucket > Long.MAX_VALUE - bucketMillis ? Long.MAX_VALUE : lastBucket + bucketMillis - 1;
+        return read(() -> {
+            TimeSeries[] series = seriesByType;
+            if (recordType < 0 || recordType >= series.length || series[recordType] == null
+                    || startTime > endTime) {
+                return new ArrayList<Rollup>();
+            }
+            BucketAccumulator accumulator = new BucketAccumulator(patientId, recordType, bucketMillis);
+            if (bucketMillis % ROLLUP_INTERVAL_MILLIS == 0) {
+                // whole minutes: every rollup falls into exactly one bucket
+                rollupsByType[recordType].scan(first, last, accumulator);
+            } else {
+                TimeSeries samples = series[recordType];
+                int end = samples.upperBound(last);
+                for (int i = samples.lowerBound(first); i < end; i++) {
+                    double value = samples.valueAt(i);
+                    accumulator.visit(samples.timestampAt(i), value, value, value, 1);
+                }
+            }
+            return accumulator.finish();
+        });
+    }
+
+    /** Merges samples or rollups, in time order, into buckets of a fixed length. */
+    private static final class BucketAccumulator implements RollupSeries.BucketVisitor {
+        private final int patientId;
+        private final int recordType;
+        private final long bucketMillis;
+        private final List<Rollup> buckets = new ArrayList<>();
+        private long bucket = Long.MIN_VALUE;
+        private double min;
+        private double max;
+        private double sum;
+        private long count;
+
+        BucketAccumulator(int patientId, int recordType, long bucketMillis) {
+            this.patientId = patientId;
+            this.recordType = recordType;
+            this.bucketMillis = bucketMillis;
+        }
+
+        @Override
+        public void visit(long start, double min, double max, double sum, long count) {
+            long bucketStart = Math.floorDiv(start, bucketMillis) * bucketMillis;
+            if (this.count == 0 || bucketStart != bucket) {
+                flush();
+                this.bucket = bucketStart;
+                this.min = min;
+                this.max = max;
+                this.sum = sum;
+                this.count = count;
+            } else {
+                this.min = Math.min(this.min, min);
+                this.max = Math.max(this.max, max);
+                this.sum += sum;
+                this.count += count;
+            }
+        }
+
+        private void flush() {
+            if (count > 0) {
+                buckets.add(new Rollup(patientId, recordType, bucket, bucketMillis, min, max, sum, count));
+            }
+        }
+
+        List<Rollup> finish() {
+            flush();
+            count = 0;
+            return buckets;
+        }
+    }
+
+    /**
+     * Aggregates the samples of a single record type into buckets of the given
+     * length, see {@link #aggregate(int, long, long, long)}.
+     *
+     * @param recordType   the record type, e.g. "ECG"
+     * @param startTime    the start of the time range, in milliseconds since
+     *                     UNIX epoch
+     * @param endTime      the end of the time range, in milliseconds since UNIX
+     *                     epoch
+     * @param bucketMillis the length of a bucket
+     * @return the non-empty buckets in time order
+     */
+    public List<Rollup> aggregate(String recordType, long startTime, long endTime, long bucketMillis) {
+        return aggregate(RecordTypes.find(recordType), startTime, endTime, bucketMillis);
+    }
+
+    private TimeSeries seriesFor(int recordType) {
+        if (recordType >= seriesByType.length) {
+            seriesByType = Arrays.copyOf(seriesByType, Math.max(recordType + 1, RecordTypes.count()));
+        }
+        TimeSeries series = seriesByType[recordType];
+        if (series == null) {
+            rollupsByType = Arrays.copyOf(rollupsByType, seriesByType.length);
+            rollupsByType[recordType] = new RollupSeries(ROLLUP_INTERVAL_MILLIS);
+            series = new TimeSeries(recordType);
+            seriesByType[recordType] = series;
+        }
+        return series;
+    }
+
+    private PatientRecord toRecord(TimeSeries series, int index) {
+        return new PatientRecord(patientId, series.valueAt(index), series.recordType(), series.timestampAt(index));
     }
 
     /**
      * Retrieves a list of PatientRecord objects for this patient that fall within a
      * specified time range.
-     * The method filters records based on the start and end times provided.
+     * The range is located in each record type's series by binary search, so the
+     * cost depends on the number of records returned rather than the history
+     * size. Records are returned in timestamp order.
      *
      * @param startTime the start of the time range, in milliseconds since UNIX
      *                  epoch
@@ -52,53 +338,323 @@ public class Patient {
      *         range
      */
     public List<PatientRecord> getRecords(long startTime, long endTime) {
+        return read(() -> collectRecords(seriesByType, startTime, endTime));
+    }
+
+    private List<PatientRecord> collectRecords(TimeSeries[] seriesByType, long startTime, long endTime) {
         List<PatientRecord> recordsInRange = new ArrayList<>();
-        for (PatientRecord record : this.patientRecords) {
-            if (record.getTimestamp() >= startTime && record.getTimestamp() <= endTime) {
-                recordsInRange.add(record);
+        if (startTime > endTime) {
+            return recordsInRange;
+        }
+        // locate the range in every series, then merge the sorted ranges
+        int[] cursors = new int[seriesByType.length];
+        int[] ends = new int[seriesByType.length];
+        for (int t = 0; t < seriesByType.length; t++) {
+            TimeSeries series = seriesByType[t];
+            if (series != null) {
+                cursors[t] = series.lowerBound(startTime);
+                ends[t] = series.upperBound(endTime);
+            }
+        }
+        while (true) {
+            int best = -1;
+            for (int t = 0; t < cursors.length; t++) {
+                if (cursors[t] < ends[t] && (best < 0
+                        || seriesByType[t].timestampAt(cursors[t]) < seriesByType[best].timestampAt(cursors[best]))) {
+                    best = t;
+                }
             }
+            if (best < 0) {
+                return recordsInRange;
+            }
+            recordsInRange.add(toRecord(seriesByType[best], cursors[best]++));
+        }
+    }
+
+    /**
+     * Retrieves the records of a single record type that fall within a specified
+     * time range, in timestamp order. Only the series of that type is touched.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     * @param startTime  the start of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @param endTime    the end of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @return a list of PatientRecord objects of the given type within the range
+     */
+    public List<PatientRecord> getRecords(int recordType, long startTime, long endTime) {
+        return read(() -> collectRecords(seriesByType, recordType, startTime, endTime));
+    }
+
+    private List<PatientRecord> collectRecords(TimeSeries[] seriesByType, int recordType, long startTime,
+            long endTime) {
+        List<PatientRecord> recordsInRange = new ArrayList<>();
+        if (recordType < 0 || recordType >= seriesByType.length || seriesByType[recordType] == null) {
+            return recordsInRange;
+        }
+        TimeSeries series = seriesByType[recordType];
+        int end = series.upperBound(endTime);
+        for (int i = series.lowerBound(startTime); i < end; i++) {
+            recordsInRange.add(toRecord(series, i));
         }
         return recordsInRange;
     }
 
     /**
-     * Retrieves the last n records for this patient.
+     * Retrieves the records of a single record type that fall within a specified
+     * time range, in timestamp order.
+     *
+     * @param recordType the record type, e.g. "ECG"
+     * @param startTime  the start of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @param endTime    the end of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @return a list of PatientRecord objects of the given type within the range
+     */
+    public List<PatientRecord> getRecords(String recordType, long startTime, long endTime) {
+        return getRecords(RecordTypes.find(recordType), startTime, endTime);
+    }
+
+    /**
+     * Opens a cursor over the records of a single record type that fall within
+     * a specified time range, in timestamp order. Unlike
+     * {@link #getRecords(int, long, long)} no list or record objects are
+     * created; the cursor exposes each record's timestamp and value.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     * @param startTime  the start of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @param endTime    the end of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @return a cursor positioned before the first record in range
+     */
+    public RecordCursor getCursor(int recordType, long startTime, long endTime) {
+        return getCursor(recordType, startTime, endTime, new RecordCursor());
+    }
+
+    /**
+     * Reopens the given cursor over the records of a single record type that
+     * fall within a specified time range, so a cursor can be reused without
+     * allocating.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     * @param startTime  the start of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @param endTime    the end of the time range, in milliseconds since UNIX
+     *                   epoch
+     * @param cursor     the cursor to reopen
+     * @return the cursor, positioned before the first record in range
+     */
+    public RecordCursor getCursor(int recordType, long startTime, long endTime, RecordCursor cursor) {
+        return cursor.open(this, recordType, startTime, endTime);
+    }
+
+    /** Loads the next batch of a cursor within a consistent read. */
+    boolean fill(RecordCursor cursor) {
+        return read(() -> cursor.load(seriesByType));
+    }
+
+    /**
+     * Returns the timestamp of the latest record of the given type.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     * @return the latest timestamp, or {@code Long.MIN_VALUE} if the patient has
+     *         no record of that type
+     */
+    public long getLatestTimestamp(int recordType) {
+        return read(() -> {
+            TimeSeries[] series = seriesByType;
+            if (recordType < 0 || recordType >= series.length || series[recordType] == null) {
+                return Long.MIN_VALUE;
+            }
+            return series[recordType].lastTimestamp();
+        });
+    }
+
+    /**
+     * Retrieves the last n records for this patient, most recent first.
+     * The series of all record types are merged from their tails. Records of
+     * different types sharing a timestamp are ordered by which series was
+     * appended to last, not by when each record itself was added: only the
+     * latest append of a series is remembered, not one per record. For ties
+     * among the newest records of each type, the usual case, this is their
+     * append order; an older tie can come out in a different order.
      *
      * @return a list of the last n PatientRecord objects for this patient
      */
     public List<PatientRecord> getLastNRecords(int n) {
+        return read(() -> collectLastNRecords(seriesByType, n));
+    }
+
+    private List<PatientRecord> collectLastNRecords(TimeSeries[] seriesByType, int n) {
         ArrayList<PatientRecord> lastNRecords = new ArrayList<>();
-        int size = this.patientRecords.size();
-        for (int i = 0; i < n && i < size; i++) {
-            lastNRecords.add(this.patientRecords.get(size - 1 - i));
+        int[] cursors = new int[seriesByType.length];
+        for (int t = 0; t < seriesByType.length; t++) {
+            cursors[t] = seriesByType[t] == null ? -1 : seriesByType[t].size() - 1;
+        }
+        while (lastNRecords.size() < n) {
+            int best = -1;
+            for (int t = 0; t < cursors.length; t++) {
+                if (cursors[t] < 0) {
+                    continue;
+                }
+                if (best < 0 || isLater(seriesByType[t], cursors[t], seriesByType[best], cursors[best])) {
+                    best = t;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            lastNRecords.add(toRecord(seriesByType[best], cursors[best]--));
         }
         return lastNRecords;
     }
+
     /**
-     * Adds all the records that match the given label to a new list
+     * Orders two samples by timestamp and ties by the series' latest append,
+     * which only reflects the samples' own append order at the series' tails.
+     */
+    private static boolean isLater(TimeSeries a, int indexA, TimeSeries b, int indexB) {
+        long timestampA = a.timestampAt(indexA);
+        long timestampB = b.timestampAt(indexB);
+        if (timestampA != timestampB) {
+            return timestampA > timestampB;
+        }
+        return a.lastSequence() > b.lastSequence();
+    }
+
+    /**
+     * Copies the last n records of a single record type, most recent first,
+     * into the given arrays. The newest samples of every series are kept
+     * uncompressed in timestamp order, so this reads the series' tail
+     * directly: it costs O(n), creates no records and never mixes record types,
+     * unlike filtering {@link #getLastNRecords(int)}.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     * @param n          the number of records wanted
+     * @param timestamps receives the timestamps, at least n long
+     * @param values     receives the values, at least n long
+     * @return the number of records copied, less than n if the patient has
+     *         fewer records of that type
+     */
+    public int getLastNRecords(int recordType, int n, long[] timestamps, double[] values) {
+        return read(() -> {
+            TimeSeries[] series = seriesByType;
+            if (recordType < 0 || recordType >= series.length || series[recordType] == null) {
+                return 0;
+            }
+            TimeSeries tail = series[recordType];
+            int copied = Math.min(n, tail.size());
+            for (int i = 0; i < copied; i++) {
+                timestamps[i] = tail.timestampAt(tail.size() - 1 - i);
+                values[i] = tail.valueAt(tail.size() - 1 - i);
+            }
+            return copied;
+        });
+    }
+
+    /**
+     * Returns the record type of this patient's most recent record, the first
+     * record {@link #getLastNRecords(int)} would return.
+     *
+     * @return the record type code, or -1 if the patient has no records
+     */
+    public int getLatestRecordType() {
+        return read(() -> {
+            TimeSeries[] series = seriesByType;
+            int latest = -1;
+            for (int t = 0; t < series.length; t++) {
+                if (series[t] != null && series[t].size() > 0 && (latest < 0
+                        || isLater(series[t], series[t].size() - 1, series[latest], series[latest].size() - 1))) {
+                    latest = t;
+                }
+            }
+            return latest;
+        });
+    }
+
+    /**
+     * Returns the number of records stored for this patient.
+     *
+     * @return the number of records
+     */
+    public int getRecordCount() {
+        return read(() -> {
+            int count = 0;
+            for (TimeSeries series : seriesByType) {
+                if (series != null) {
+                    count += series.size();
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Estimates the heap used by this patient's record series and rollups.
+     *
+     * @return the estimated footprint in bytes
+     */
+    public long getFootprintBytes() {
+        return read(() -> {
+            long bytes = 0;
+            for (TimeSeries series : seriesByType) {
+                if (series != null) {
+                    bytes += series.footprintBytes();
+                }
+            }
+            for (RollupSeries rollups : rollupsByType) {
+                if (rollups != null) {
+                    bytes += rollups.footprintBytes();
+                }
+            }
+            return bytes;
+        });
+    }
+    /**
+     * Adds all the records that match the given label to a new list.
+     * Prefer {@link #getRecords(int, long, long)} or
+     * {@link #getCursor(int, long, long)}, which read only the records of the
+     * wanted type instead of filtering a mixed list.
      * @param label the label to filter the records by
      * @param records the list of records to filter
      * @return a new list of records that match the given label
      */
     public static List<PatientRecord> filterRecordsBasedOnLabel(String label, List<PatientRecord> records) {
+        int recordType = RecordTypes.find(label);
         List<PatientRecord> filteredRecords = new ArrayList<>();
         for (PatientRecord record : records) {
-            if (record.getRecordType().equals(label)) {
+            if (record.getRecordTypeCode() == recordType) {
                 filteredRecords.add(record);
             }
         }
         return filteredRecords;
     }
     /**
-     * Adds all the records that match the given labels to a new list
+     * Adds all the records that match any of the given labels to a new list,
+     * keeping the order of the input list. The input is scanned once.
      * @param labels the labels to filter the records by
      * @param records the list of records to filter
      * @return a new list of records that match the given labels
      */
     public static List<PatientRecord> filterRecordsBasedOnLabels(List<String> labels, List<PatientRecord> records) {
-        List<PatientRecord> filteredRecords = new ArrayList<>();
+        boolean[] wanted = new boolean[RecordTypes.count()];
         for (String label : labels) {
-            filteredRecords.addAll(filterRecordsBasedOnLabel(label, records));
+            int recordType = RecordTypes.find(label);
+            if (recordType < 0) {
+                continue;
+            }
+            if (recordType >= wanted.length) {
+                wanted = Arrays.copyOf(wanted, recordType + 1);
+            }
+            wanted[recordType] = true;
+        }
+        List<PatientRecord> filteredRecords = new ArrayList<>();
+        for (PatientRecord record : records) {
+            int recordType = record.getRecordTypeCode();
+            if (recordType < wanted.length && wanted[recordType]) {
+                filteredRecords.add(record);
+            }
         }
         return filteredRecords;
     }
@@ -107,4 +663,15 @@ public class Patient {
         List<PatientRecord> recordsInRange = getRecords(System.currentTimeMillis()-1000*60*10, System.currentTimeMillis());
         return recordsInRange;
     }
+
+    /**
+     * Retrieves the records of a single record type from the last ten minutes.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     * @return the records of the given type from the last ten minutes
+     */
+    public List<PatientRecord> getLastTenMinutes(int recordType) {
+        long now = System.currentTimeMillis();
+        return getRecords(recordType, now - 1000 * 60 * 10, now);
+    }
 }
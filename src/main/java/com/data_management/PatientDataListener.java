@@ -0,0 +1,21 @@
+package com.data_management;
+
+import com.records.RecordTypes;
+
+/**
+ * Receives every sample added to a {@link DataStorage}, right after it has been
+ * stored. Listeners are called on the thread that added the sample, so they
+ * should do a small, bounded amount of work per call.
+ */
+public interface PatientDataListener {
+    /**
+     * Called for each sample added to the storage.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param recordType       the record type code, see {@link RecordTypes}
+     * @param measurementValue the value of the health metric
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    void onPatientData(int patientId, int recordType, double measurementValue, long timestamp);
+}
@@ -1,5 +1,7 @@
 package com.data_management;
 
+import com.records.RecordTypes;
+
 /**
  * Represents a single record of patient data at a specific point in time.
  * This class stores all necessary details for a single observation or
@@ -12,6 +14,7 @@ package com.data_management;
 public class PatientRecord {
     private int patientId;
     private String recordType; // Example: ECG, blood pressure, etc.
+    private int recordTypeCode; // see RecordTypes
     private double measurementValue; // Example: heart rate
     private long timestamp;
 
@@ -26,9 +29,24 @@ public class PatientRecord {
      *                         milliseconds since epoch
      */
     public PatientRecord(int patientId, double measurementValue, String recordType, long timestamp) {
+        this(patientId, measurementValue, RecordTypes.codeOf(recordType), timestamp);
+    }
+
+    /**
+     * Constructs a new patient record whose type is given as a
+     * {@link RecordTypes} code.
+     *
+     * @param patientId        the unique identifier for the patient
+     * @param measurementValue the numerical value of the recorded measurement
+     * @param recordTypeCode   the record type code
+     * @param timestamp        the time at which the measurement was recorded, in
+     *                         milliseconds since epoch
+     */
+    public PatientRecord(int patientId, double measurementValue, int recordTypeCode, long timestamp) {
         this.patientId = patientId;
         this.measurementValue = measurementValue;
-        this.recordType = recordType;
+        this.recordType = RecordTypes.nameOf(recordTypeCode);
+        this.recordTypeCode = recordTypeCode;
         this.timestamp = timestamp;
     }
 
@@ -67,4 +85,14 @@ public class PatientRecord {
     public String getRecordType() {
         return recordType;
     }
+
+    /**
+     * Returns the {@link RecordTypes} code of the record type. Comparing codes
+     * is cheaper than comparing {@link #getRecordType()} labels.
+     *
+     * @return the record type code
+     */
+    public int getRecordTypeCode() {
+        return recordTypeCode;
+    }
 }
@@ -0,0 +1,60 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+/**
+ * A growable, column-wise buffer of parsed records. Parser threads fill their
+ * own buffers so that records can later be added to a {@link DataStorage} in
+ * file order, which keeps the storage's series appends cheap.
+ */
+final class RecordBuffer implements PatientDataListener {
+    private int[] patientIds;
+    private int[] recordTypes;
+    private double[] values;
+    private long[] timestamps;
+    private int size;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param initialCapacity the number of records to make room for up front
+     */
+    RecordBuffer(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        patientIds = new int[capacity];
+        recordTypes = new int[capacity];
+        values = new double[capacity];
+        timestamps = new long[capacity];
+    }
+
+    @Override
+    public void onPatientData(int patientId, int recordType, double measurementValue, long timestamp) {
+        if (size == patientIds.length) {
+            int grown = size * 2;
+            patientIds = Arrays.copyOf(patientIds, grown);
+            recordTypes = Arrays.copyOf(recordTypes, grown);
+            values = Arrays.copyOf(values, grown);
+            timestamps = Arrays.copyOf(timestamps, grown);
+        }
+        patientIds[size] = patientId;
+        recordTypes[size] = recordType;
+        values[size] = measurementValue;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    /**
+     * Adds the buffered records to the storage in the order they were parsed.
+     *
+     * @param storage the storage to add the records to
+     */
+    void addTo(DataStorage storage) {
+        for (int i = 0; i < size; i++) {
+            storage.addPatientData(patientIds[i], values[i], recordTypes[i], timestamps[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+}
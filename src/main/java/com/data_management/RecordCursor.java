@@ -0,0 +1,148 @@
+package com.data_management;
+
+import com.records.RecordTypes;
+
+/**
+ * A forward cursor over the records of one record type of a patient within a
+ * time range, read without creating a {@link PatientRecord} per record:
+ * <pre>{@code
+ * RecordCursor cursor = patient.getCursor(RecordTypes.ECG, from, to);
+ * while (cursor.next()) {
+ *     sum += cursor.value();
+ * }
+ * }</pre>
+ * The cursor copies a small batch of timestamps and values out of the
+ * patient's series at a time, each batch read consistently like
+ * {@link Patient#getRecords(int, long, long)}, into arrays it reuses, so
+ * iterating allocates nothing per record. A cursor can be reopened on another
+ * patient or range, which makes a per-thread cursor allocation-free.
+ * <p>
+ * The cursor is weakly consistent: records added behind its position while it
+ * is open are not returned, records added ahead of it are. A cursor must not
+ * be shared between threads.
+ */
+public final class RecordCursor {
+    private static final int BATCH_SIZE = 64;
+
+    private final long[] timestamps = new long[BATCH_SIZE];
+    private final double[] values = new double[BATCH_SIZE];
+    private Patient patient;
+    private int recordType;
+    private long endTime;
+    private long resumeTimestamp; // the next batch starts at this timestamp...
+    private int resumeSkip; // ...after skipping this many records having it
+    private int position;
+    private int count;
+    private boolean exhausted;
+
+    /**
+     * Creates a cursor that returns no records until it is opened through
+     * {@link Patient#getCursor(int, long, long, RecordCursor)}.
+     */
+    public RecordCursor() {
+        this.exhausted = true;
+    }
+
+    RecordCursor open(Patient patient, int recordType, long startTime, long endTime) {
+        this.patient = patient;
+        this.recordType = recordType;
+        this.endTime = endTime;
+        this.resumeTimestamp = startTime;
+        this.resumeSkip = 0;
+        this.position = 0;
+        this.count = 0;
+        this.exhausted = patient == null || startTime > endTime;
+        return this;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return {@code true} if there is a record, {@code false} once the range
+     *         is exhausted
+     */
+    public boolean next() {
+        if (++position < count) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        if (!patient.fill(this)) {
+            exhausted = true;
+            count = 0;
+            return false;
+        }
+        position = 0;
+        // resume after the records just loaded, counting those sharing the last timestamp
+        long last = timestamps[count - 1];
+        int same = 0;
+        while (same < count && timestamps[count - 1 - same] == last) {
+            same++;
+        }
+        resumeSkip = same == count && last == resumeTimestamp ? resumeSkip + same : same;
+        resumeTimestamp = last;
+        return true;
+    }
+
+    /**
+     * Copies the next batch out of the patient's series. Called by the patient
+     * within a consistent read, possibly more than once, so it only writes the
+     * batch and its size.
+     *
+     * @param seriesByType the patient's series, indexed by record type code
+     * @return {@code true} if at least one record was loaded
+     */
+    boolean load(TimeSeries[] seriesByType) {
+        count = 0;
+        if (recordType < 0 || recordType >= seriesByType.length || seriesByType[recordType] == null) {
+            return false;
+        }
+        TimeSeries series = seriesByType[recordType];
+        int end = series.upperBound(endTime);
+        int index = Math.min(series.lowerBound(resumeTimestamp) + resumeSkip, end);
+        int loaded = Math.min(end - index, BATCH_SIZE);
+        for (int i = 0; i < loaded; i++) {
+            timestamps[i] = series.timestampAt(index + i);
+            values[i] = series.valueAt(index + i);
+        }
+        count = loaded;
+        return loaded > 0;
+    }
+
+    /**
+     * Returns the timestamp of the current record.
+     *
+     * @return the timestamp in milliseconds since epoch
+     */
+    public long timestamp() {
+        return timestamps[position];
+    }
+
+    /**
+     * Returns the measurement value of the current record.
+     *
+     * @return the measurement value
+     */
+    public double value() {
+        return values[position];
+    }
+
+    /**
+     * Returns the record type code of the records of this cursor.
+     *
+     * @return the record type code, see {@link RecordTypes}
+     */
+    public int recordType() {
+        return recordType;
+    }
+
+    /**
+     * Returns the ID of the patient the records belong to.
+     *
+     * @return the patient ID
+     */
+    public int patientId() {
+        return patient.getPatientId();
+    }
+}
@@ -0,0 +1,373 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.records.RecordTypes;
+
+/**
+ * Parses lines written by the simulator's text outputs,
+ * {@code Patient ID: <id>, Timestamp: <millis>, Label: <label>, Data: <value>},
+ * directly from a byte buffer into a {@link PatientDataListener}, such as one
+ * adding to a {@link DataStorage} or a {@link RecordBuffer}.
+ * Numbers are parsed in place and labels are matched against the labels seen
+ * before, so a line is stored without creating any intermediate object. Only
+ * a label seen for the first time, and the rare value that the fast double
+ * conversion cannot round correctly, allocate a String.
+ * The saturation outputs' trailing {@code %} is ignored, and the alert states
+ * {@code triggered} and {@code resolved} are stored as 1 and 0.
+ * A parser keeps a small label cache and must not be shared between threads.
+ */
+final class RecordLineParser {
+    private static final byte[] PATIENT_ID = ascii("Patient ID: ");
+    private static final byte[] TIMESTAMP = ascii(", Timestamp: ");
+    private static final byte[] LABEL = ascii(", Label: ");
+    private static final byte[] DATA = ascii(", Data: ");
+    private static final byte[] TRIGGERED = ascii("triggered");
+    private static final byte[] RESOLVED = ascii("resolved");
+    private static final int MAX_EXPONENT = 100_000;
+
+    private final String source;
+    private byte[][] labels = new byte[8][];
+    private int[] labelCodes = new int[8];
+    private int labelCount;
+
+    // the scan position within the current line, kept in a field so helpers need no result objects
+    private int position;
+
+    /**
+     * Creates a parser.
+     *
+     * @param source the name of the parsed input, used in error messages
+     */
+    RecordLineParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parses the complete lines in {@code buffer[from, to)} and passes their
+     * records to the target. A trailing line without a line break is left
+     * unparsed unless {@code endOfInput} is set, so callers reading in chunks
+     * can carry it over to the next chunk.
+     *
+     * @param buffer     the bytes to parse; its position and limit are ignored
+     * @param from       the index of the first byte to parse
+     * @param to         the index after the last byte to parse
+     * @param endOfInput whether the bytes end the input
+     * @param target     receives the parsed records
+     * @return the index after the last parsed line
+     * @throws IOException if a line does not have the expected layout
+     */
+    int parse(ByteBuffer buffer, int from, int to, boolean endOfInput, PatientDataListener target) throws IOException {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == to && !endOfInput) {
+                break;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            if (contentEnd > lineStart) {
+                parseLine(buffer, lineStart, contentEnd, target);
+            }
+            lineStart = Math.min(lineEnd + 1, to);
+        }
+        return lineStart;
+    }
+
+    private void parseLine(ByteBuffer buffer, int start, int end, PatientDataListener target) throws IOException {
+        position = start;
+        expect(buffer, end, PATIENT_ID);
+        long patientId = parseLong(buffer, end, ',');
+        if (patientId != (int) patientId) {
+            throw invalidFormat();
+        }
+        expect(buffer, end, TIMESTAMP);
+        long timestamp = parseLong(buffer, end, ',');
+        expect(buffer, end, LABEL);
+        int labelStart = position;
+        while (position < end && buffer.get(position) != ',') {
+            position++;
+        }
+        int recordType = recordType(buffer, labelStart, position);
+        expect(buffer, end, DATA);
+        double value = parseValue(buffer, position, end);
+        target.onPatientData((int) patientId, recordType, value, timestamp);
+    }
+
+    private void expect(ByteBuffer buffer, int end, byte[] expected) throws IOException {
+        if (end - position < expected.length) {
+            throw invalidFormat();
+        }
+        for (byte b : expected) {
+            if (buffer.get(position++) != b) {
+                throw invalidFormat();
+            }
+        }
+    }
+
+    private long parseLong(ByteBuffer buffer, int end, char terminator) throws IOException {
+        boolean negative = position < end && buffer.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        int digitsStart = position;
+        long value = 0;
+        while (position < end && buffer.get(position) != terminator) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9 || position - digitsStart >= 18) {
+                throw invalidFormat();
+            }
+            value = value * 10 + digit;
+            position++;
+        }
+        if (position == digitsStart) {
+            throw invalidFormat();
+        }
+        return negative ? -value : value;
+    }
+
+    private int recordType(ByteBuffer buffer, int start, int end) throws IOException {
+        int length = end - start;
+        if (length == 0) {
+            throw invalidFormat();
+        }
+        for (int i = 0; i < labelCount; i++) {
+            if (matches(buffer, start, end, labels[i])) {
+                return labelCodes[i];
+            }
+        }
+        byte[] label = new byte[length];
+        for (int i = 0; i < length; i++) {
+            label[i] = buffer.get(start + i);
+        }
+        if (labelCount == labels.length) {
+            labels = Arrays.copyOf(labels, labelCount * 2);
+            labelCodes = Arrays.copyOf(labelCodes, labelCount * 2);
+        }
+        labels[labelCount] = label;
+        labelCodes[labelCount] = RecordTypes.codeOf(new String(label, StandardCharsets.UTF_8));
+        return labelCodes[labelCount++];
+    }
+
+    private static boolean matches(ByteBuffer buffer, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double parseValue(ByteBuffer buffer, int start, int end) throws IOException {
+        if (end > start && buffer.get(end - 1) == '%') {
+            end--;
+        }
+        if (matches(buffer, start, end, TRIGGERED)) {
+            return 1.0;
+        }
+        if (matches(buffer, start, end, RESOLVED)) {
+            return 0.0;
+        }
+        return parseDouble(buffer, start, end);
+    }
+
+    /**
+     * Parses a decimal number such as {@code -0.4319649395371195} or
+     * {@code 1.0E-5} with correct rounding. Up to 19 significant digits are
+     * converted exactly with Clinger's fast path or the Eisel-Lemire algorithm;
+     * anything else falls back to {@link Double#parseDouble(String)}.
+     */
+    private double parseDouble(ByteBuffer buffer, int start, int end) throws IOException {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean exact = true;
+        while (i < end && isDigit(buffer.get(i))) {
+            anyDigit = true;
+            exact &= digits < 19; // more significant digits would overflow the long
+            if (mantissa != 0 || buffer.get(i) != '0') {
+                mantissa = mantissa * 10 + (buffer.get(i) - '0');
+                digits++;
+            }
+            i++;
+        }
+        if (i < end && buffer.get(i) == '.') {
+            i++;
+            while (i < end && isDigit(buffer.get(i))) {
+                anyDigit = true;
+                exact &= digits < 19; // more significant digits would overflow the long
+                if (mantissa != 0 || buffer.get(i) != '0') {
+                    mantissa = mantissa * 10 + (buffer.get(i) - '0');
+                    digits++;
+                }
+                exponent--;
+                i++;
+            }
+        }
+        if (anyDigit && i < end && (buffer.get(i) == 'E' || buffer.get(i) == 'e')) {
+            position = i + 1;
+            long explicitExponent;
+            try {
+                explicitExponent = parseLong(buffer, end, '\n');
+            } catch (IOException e) {
+                return fallback(buffer, start, end);
+            }
+            if (Math.abs(explicitExponent) > MAX_EXPONENT) {
+                // far beyond the range of a double, left to the JDK to round to zero or infinity
+                return fallback(buffer, start, end);
+            }
+            exponent += (int) explicitExponent;
+            i = end;
+        }
+        if (!anyDigit || i != end || !exact) {
+            return fallback(buffer, start, end);
+        }
+        double value = toDouble(mantissa, exponent);
+        if (Double.isNaN(value)) {
+            return fallback(buffer, start, end);
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private double fallback(ByteBuffer buffer, int start, int end) throws IOException {
+        byte[] text = new byte[end - start];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = buffer.get(start + i);
+        }
+        try {
+            return Double.parseDouble(new String(text, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw invalidFormat();
+        }
+    }
+
+    private IOException invalidFormat() {
+        return new IOException("Invalid data format in file: " + source);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // ---- decimal to binary conversion ----
+
+    private static final int SMALLEST_POWER_OF_TEN = -342;
+    private static final int LARGEST_POWER_OF_TEN = 308;
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    // 128-bit approximations of 5^q, normalized so the top bit is set, high word first
+    private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+    /**
+     * Returns the double nearest to {@code mantissa * 10^exponent}, or NaN if it
+     * cannot be determined here.
+     */
+    static double toDouble(long mantissa, int exponent) {
+        if (mantissa == 0) {
+            return 0.0;
+        }
+        if (mantissa < 0) {
+            return Double.NaN;
+        }
+        if (mantissa <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+            // both operands are exact, so a single rounding gives the right answer
+            return exponent < 0 ? mantissa / EXACT_POWERS_OF_TEN[-exponent]
+                    : mantissa * EXACT_POWERS_OF_TEN[exponent];
+        }
+        if (exponent < SMALLEST_POWER_OF_TEN) {
+            return 0.0;
+        }
+        if (exponent > LARGEST_POWER_OF_TEN) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return eiselLemire(mantissa, exponent);
+    }
+
+    private static double eiselLemire(long w, int q) {
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+        int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+        long high = Math.unsignedMultiplyHigh(w, POWERS_OF_FIVE[index]);
+        long low = w * POWERS_OF_FIVE[index];
+        if ((high & 0x1FF) == 0x1FF) {
+            long secondHigh = Math.unsignedMultiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0) {
+                high++;
+            }
+        }
+        int upperBit = (int) (high >>> 63);
+        int shift = upperBit + 9;
+        long mantissa = high >>> shift;
+        int power2 = (int) (((217706L * q) >> 16) + 63) + upperBit - lz + 1023;
+        if (power2 <= 0) {
+            return Double.NaN; // subnormal, left to the fallback
+        }
+        if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1
+                && (mantissa << shift) == high) {
+            // exactly halfway: round to even
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.longBitsToDouble(mantissa | ((long) power2 << 52));
+    }
+
+    private static long[] powersOfFive() {
+        long[] table = new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+        BigInteger five = BigInteger.valueOf(5);
+        BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++) {
+            BigInteger value;
+            if (q >= 0) {
+                value = five.pow(q);
+                int bits = value.bitLength();
+                value = bits < 128 ? value.shiftLeft(128 - bits) : value.shiftRight(bits - 128);
+            } else {
+                BigInteger power = five.pow(-q);
+                int z = power.bitLength(); // smallest z with 2^z > 5^-q
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+                while (value.compareTo(two128) >= 0) {
+                    value = value.shiftRight(1);
+                }
+            }
+            int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+            table[index] = value.shiftRight(64).longValue();
+            table[index + 1] = value.longValue();
+        }
+        return table;
+    }
+}
@@ -0,0 +1,65 @@
+package com.data_management;
+
+/**
+ * The outcome of restoring a {@link DurableDataStorage} on startup: how many
+ * samples came from the snapshot and from the write-ahead log, and how long it
+ * took.
+ */
+public class RecoveryReport {
+    private final long snapshotRecordCount;
+    private final long replayedRecordCount;
+    private final long skippedRecordCount;
+    private final long elapsedNanos;
+
+    /**
+     * Creates a report.
+     *
+     * @param snapshotRecordCount the number of samples loaded from the snapshot
+     * @param replayedRecordCount the number of samples replayed from the log
+     * @param skippedRecordCount  the number of logged samples skipped because
+     *                            the snapshot already contained them
+     * @param elapsedNanos        the wall-clock duration of the recovery, in
+     *                            nanoseconds
+     */
+    public RecoveryReport(long snapshotRecordCount, long replayedRecordCount, long skippedRecordCount,
+            long elapsedNanos) {
+        this.snapshotRecordCount = snapshotRecordCount;
+        this.replayedRecordCount = replayedRecordCount;
+        this.skippedRecordCount = skippedRecordCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getSnapshotRecordCount() {
+        return snapshotRecordCount;
+    }
+
+    public long getReplayedRecordCount() {
+        return replayedRecordCount;
+    }
+
+    public long getSkippedRecordCount() {
+        return skippedRecordCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the recovery time scaled to a million restored samples, to size
+     * restarts of larger stores.
+     *
+     * @return the milliseconds per million restored samples
+     */
+    public double getMillisPerMillionRecords() {
+        long records = snapshotRecordCount + replayedRecordCount;
+        return records == 0 ? 0 : elapsedNanos / 1_000_000.0 / (records / 1_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Recovered %d records from the snapshot and %d from the log (%d skipped) in %.1f ms "
+                + "(%.0f ms per million records)", snapshotRecordCount, replayedRecordCount, skippedRecordCount,
+                elapsedNanos / 1_000_000.0, getMillisPerMillionRecords());
+    }
+}
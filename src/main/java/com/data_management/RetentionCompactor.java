@@ -0,0 +1,130 @@
+package com.data_management;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies a {@link RetentionPolicy} to a {@link DataStorage}: samples older
+ * than their raw retention are evicted, leaving only the per-minute rollups
+ * every patient maintains, and rollups older than their retention are
+ * dropped.
+ * <p>
+ * Passes run on a background thread once {@link #start(long)} is called, or
+ * on the caller's thread through {@link #compact(long)}. A pass visits one
+ * patient at a time and takes each patient's write lock only to unlink
+ * evicted chunks, so ingestion and alert evaluation keep running. Samples are
+ * evicted a compressed chunk at a time, so up to a chunk of samples past the
+ * raw retention may remain until the chunk is entirely expired.
+ */
+public class RetentionCompactor implements AutoCloseable {
+    private final DataStorage storage;
+    private final RetentionPolicy policy;
+    private final AtomicLong totalEvictedSamples = new AtomicLong();
+    private final AtomicLong totalReclaimedBytes = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private volatile CompactionReport lastReport;
+
+    /** Counts what a pass evicted; filled in by {@link Patient#compact}. */
+    static final class Tally {
+        int patients;
+        long evictedSamples;
+        long evictedRollups;
+        long reclaimedBytes;
+    }
+
+    /**
+     * Creates a compactor.
+     *
+     * @param storage the storage to compact
+     * @param policy  the retention to apply
+     */
+    public RetentionCompactor(DataStorage storage, RetentionPolicy policy) {
+        this.storage = storage;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts compacting in the background, once per interval, measuring
+     * retention against the wall clock.
+     *
+     * @param intervalMillis the time between passes
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Compactor already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "retention-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compact(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                System.err.println("Error compacting patient data: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one pass over all patients.
+     *
+     * @param now the time retention is measured against, in milliseconds since
+     *            the Unix epoch
+     * @return the report of the pass
+     */
+    public CompactionReport compact(long now) {
+        long start = System.nanoTime();
+        Tally tally = new Tally();
+        storage.forEachPatient(patient -> {
+            patient.compact(policy, now, tally);
+            tally.patients++;
+        });
+        CompactionReport report = new CompactionReport(tally.patients, tally.evictedSamples, tally.evictedRollups,
+                tally.reclaimedBytes, System.nanoTime() - start);
+        totalEvictedSamples.addAndGet(tally.evictedSamples);
+        totalReclaimedBytes.addAndGet(tally.reclaimedBytes);
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * Returns the report of the latest pass.
+     *
+     * @return the latest report, or {@code null} before the first pass
+     */
+    public CompactionReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Returns the number of samples evicted by all passes so far.
+     *
+     * @return the evicted sample count
+     */
+    public long getTotalEvictedSampleCount() {
+        return totalEvictedSamples.get();
+    }
+
+    /**
+     * Returns the estimated heap reclaimed by all passes so far.
+     *
+     * @return the reclaimed bytes
+     */
+    public long getTotalReclaimedBytes() {
+        return totalReclaimedBytes.get();
+    }
+
+    /**
+     * Stops the background passes. A pass in progress is completed.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+import com.records.RecordTypes;
+
+/**
+ * How long samples are kept, per record type. Raw samples are kept for the raw
+ * retention; after that only the per-minute rollups (minimum, maximum, sum and
+ * count, see {@link Patient#aggregate}) remain, which are kept for the rollup
+ * retention. Record types without a retention of their own use the default,
+ * which keeps everything unless changed.
+ * <p>
+ * The policy is applied by a {@link RetentionCompactor}. It may be changed
+ * while the compactor runs; the next pass uses the new retention.
+ */
+public class RetentionPolicy {
+    /** A retention that keeps data forever. */
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private long defaultRawRetentionMillis = FOREVER;
+    private long defaultRollupRetentionMillis = FOREVER;
+    private long[] rawRetentionMillis = new long[0]; // indexed by record type code, 0 meaning the default
+    private long[] rollupRetentionMillis = new long[0];
+
+    /**
+     * Creates a policy that keeps everything.
+     */
+    public RetentionPolicy() {
+    }
+
+    /**
+     * Returns the policy used for live monitoring: raw ECG for one hour, raw
+     * vital signs and lab results for a day, and per-minute rollups of all of
+     * them for 30 days.
+     *
+     * @return a new policy with the monitoring retention
+     */
+    public static RetentionPolicy monitoringDefaults() {
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setDefaultRetention(DAY, 30 * DAY);
+        policy.setRetention(RecordTypes.ECG, HOUR, 30 * DAY);
+        return policy;
+    }
+
+    /**
+     * Sets the retention of the record types without one of their own.
+     *
+     * @param rawRetentionMillis    how long raw samples are kept
+     * @param rollupRetentionMillis how long rollups are kept; they are
+     *                              kept at least as long as raw samples
+     */
+    public synchronized void setDefaultRetention(long rawRetentionMillis, long rollupRetentionMillis) {
+        checkRetention(rawRetentionMillis, rollupRetentionMillis);
+        this.defaultRawRetentionMillis = rawRetentionMillis;
+        this.defaultRollupRetentionMillis = rollupRetentionMillis;
+    }
+
+    /**
+     * Sets the retention of one record type.
+     *
+     * @param recordType            the record type, e.g. "ECG"
+     * @param rawRetentionMillis    how long raw samples are kept
+     * @param rollupRetentionMillis how long rollups are kept; they are
+     *                              kept at least as long as raw samples
+     */
+    public void setRetention(String recordType, long rawRetentionMillis, long rollupRetentionMillis) {
+        setRetention(RecordTypes.codeOf(recordType), rawRetentionMillis, rollupRetentionMillis);
+    }
+
+    /**
+     * Sets the retention of one record type given as a {@link RecordTypes}
+     * code.
+     *
+     * @param recordType            the record type code
+     * @param rawRetentionMillis    how long raw samples are kept
+     * @param rollupRetentionMillis how long rollups are kept; they are
+     *                              kept at least as long as raw samples
+     */
+    public synchronized void setRetention(int recordType, long rawRetentionMillis, long rollupRetentionMillis) {
+        checkRetention(rawRetentionMillis, rollupRetentionMillis);
+        if (recordType >= this.rawRetentionMillis.length) {
+            int length = Math.max(recordType + 1, RecordTypes.count());
+            this.rawRetentionMillis = Arrays.copyOf(this.rawRetentionMillis, length);
+            this.rollupRetentionMillis = Arrays.copyOf(this.rollupRetentionMillis, length);
+        }
+        this.rawRetentionMillis[recordType] = rawRetentionMillis;
+        // a rollup retention of 0 is stored as -1 to tell it apart from "not set"
+        this.rollupRetentionMillis[recordType] = rollupRetentionMillis == 0 ? -1 : rollupRetentionMillis;
+    }
+
+    private static void checkRetention(long rawRetentionMillis, long rollupRetentionMillis) {
+        if (rawRetentionMillis < 1 || rollupRetentionMillis < 0) {
+            throw new IllegalArgumentException("Invalid retention");
+        }
+    }
+
+    /**
+     * Returns how long raw samples of the given type are kept.
+     *
+     * @param recordType the record type code
+     * @return the raw retention in milliseconds, {@link #FOREVER} if unlimited
+     */
+    public synchronized long getRawRetentionMillis(int recordType) {
+        return recordType < rawRetentionMillis.length && rawRetentionMillis[recordType] != 0
+                ? rawRetentionMillis[recordType] : defaultRawRetentionMillis;
+    }
+
+    /**
+     * Returns how long rollups of the given type are kept.
+     *
+     * @param recordType the record type code
+     * @return the rollup retention in milliseconds, {@link #FOREVER} if
+     *         unlimited, 0 if rollups are dropped with the raw samples
+     */
+    public synchronized long getRollupRetentionMillis(int recordType) {
+        if (recordType < rollupRetentionMillis.length && rollupRetentionMillis[recordType] != 0) {
+            return Math.max(rollupRetentionMillis[recordType], 0);
+        }
+        return defaultRollupRetentionMillis;
+    }
+}
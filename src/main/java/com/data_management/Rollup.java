@@ -0,0 +1,99 @@
+package com.data_management;
+
+import com.records.RecordTypes;
+
+/**
+ * A summary of the samples of one record type for one patient within a time
+ * interval: their minimum, maximum, mean and count.
+ */
+public class Rollup {
+    private final int patientId;
+    private final int recordTypeCode;
+    private final long startTime;
+    private final long intervalMillis;
+    private final double min;
+    private final double max;
+    private final double sum;
+    private final long count;
+
+    /**
+     * Creates a rollup.
+     *
+     * @param patientId      the unique identifier for the patient
+     * @param recordTypeCode the record type code, see {@link RecordTypes}
+     * @param startTime      the start of the interval, in milliseconds since
+     *                       epoch
+     * @param intervalMillis the length of the interval
+     * @param min            the smallest value in the interval
+     * @param max            the largest value in the interval
+     * @param sum            the sum of the values in the interval
+     * @param count          the number of samples in the interval
+     */
+    public Rollup(int patientId, int recordTypeCode, long startTime, long intervalMillis, double min, double max,
+            double sum, long count) {
+        this.patientId = patientId;
+        this.recordTypeCode = recordTypeCode;
+        this.startTime = startTime;
+        this.intervalMillis = intervalMillis;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public int getRecordTypeCode() {
+        return recordTypeCode;
+    }
+
+    public String getRecordType() {
+        return RecordTypes.nameOf(recordTypeCode);
+    }
+
+    /**
+     * Returns the start of the interval.
+     *
+     * @return the start time in milliseconds since epoch, inclusive
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the end of the interval.
+     *
+     * @return the end time in milliseconds since epoch, exclusive
+     */
+    public long getEndTime() {
+        return startTime + intervalMillis;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s of patient %d from %d: min %.3f, max %.3f, mean %.3f over %d samples",
+                getRecordType(), patientId, startTime, min, max, getMean(), count);
+    }
+}
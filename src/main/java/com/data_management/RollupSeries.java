@@ -0,0 +1,305 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+/**
+ * A series of fixed-interval rollups of one record type, ordered by interval
+ * start. Each bucket holds the minimum, maximum, sum and count of the samples
+ * folded into it; samples can be folded in any order and land in the bucket
+ * of their interval.
+ * <p>
+ * Like {@link TimeSeries}, only the newest buckets are kept as plain columns
+ * (the tail), where samples arriving now are folded in. Once the tail holds
+ * two blocks' worth of buckets the older block is sealed: each column is
+ * compressed into a {@link CompressedBlock} keyed by the bucket starts, which
+ * shrinks the regular, slowly changing columns of a rollup to a few bytes per
+ * bucket. A late sample for a sealed bucket unseals it and the blocks after it.
+ */
+final class RollupSeries {
+    private static final int BLOCK_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final long intervalMillis;
+    private SealedBlock[] sealed = new SealedBlock[0];
+    private int sealedCount;
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private double[] mins = new double[INITIAL_CAPACITY];
+    private double[] maxs = new double[INITIAL_CAPACITY];
+    private double[] sums = new double[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private int tailSize;
+
+    /** Receives the buckets of a {@link #scan}. */
+    interface BucketVisitor {
+        void visit(long start, double min, double max, double sum, long count);
+    }
+
+    /**
+     * Creates an empty series.
+     *
+     * @param intervalMillis the length of a bucket
+     */
+    RollupSeries(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    long intervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Folds a sample into the bucket of its timestamp.
+     *
+     * @param timestamp the timestamp of the sample
+     * @param value     the value of the sample
+     */
+    void add(long timestamp, double value) {
+        long bucketStart = Math.floorDiv(timestamp, intervalMillis) * intervalMillis;
+        if (sealedCount > 0 && bucketStart <= sealed[sealedCount - 1].lastStart) {
+            unsealFrom(bucketStart);
+        }
+        int index;
+        if (tailSize > 0 && starts[tailSize - 1] == bucketStart) {
+            index = tailSize - 1;
+        } else if (tailSize == 0 || starts[tailSize - 1] < bucketStart) {
+            index = insert(tailSize, bucketStart);
+        } else {
+            index = Arrays.binarySearch(starts, 0, tailSize, bucketStart);
+            if (index < 0) {
+                index = insert(-index - 1, bucketStart);
+            }
+        }
+        if (counts[index] == 0) {
+            mins[index] = value;
+            maxs[index] = value;
+        } else {
+            mins[index] = Math.min(mins[index], value);
+            maxs[index] = Math.max(maxs[index], value);
+        }
+        sums[index] += value;
+        counts[index]++;
+        while (tailSize >= 2 * BLOCK_SIZE) {
+            sealOldest();
+        }
+    }
+
+    /** Opens an empty bucket at the given tail index and returns that index. */
+    private int insert(int index, long bucketStart) {
+        if (tailSize == starts.length) {
+            resize(starts.length * 2);
+        }
+        int moved = tailSize - index;
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(mins, index, mins, index + 1, moved);
+        System.arraycopy(maxs, index, maxs, index + 1, moved);
+        System.arraycopy(sums, index, sums, index + 1, moved);
+        System.arraycopy(counts, index, counts, index + 1, moved);
+        starts[index] = bucketStart;
+        sums[index] = 0;
+        counts[index] = 0;
+        tailSize++;
+        return index;
+    }
+
+    private void resize(int capacity) {
+        starts = Arrays.copyOf(starts, capacity);
+        mins = Arrays.copyOf(mins, capacity);
+        maxs = Arrays.copyOf(maxs, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    /** Compresses the oldest block of the tail. */
+    private void sealOldest() {
+        if (sealedCount == sealed.length) {
+            sealed = Arrays.copyOf(sealed, Math.max(4, sealedCount * 2));
+        }
+        sealed[sealedCount++] = new SealedBlock(starts, mins, maxs, sums, counts, BLOCK_SIZE);
+        removeFromTail(BLOCK_SIZE);
+    }
+
+    private void removeFromTail(int buckets) {
+        tailSize -= buckets;
+        System.arraycopy(starts, buckets, starts, 0, tailSize);
+        System.arraycopy(mins, buckets, mins, 0, tailSize);
+        System.arraycopy(maxs, buckets, maxs, 0, tailSize);
+        System.arraycopy(sums, buckets, sums, 0, tailSize);
+        System.arraycopy(counts, buckets, counts, 0, tailSize);
+    }
+
+    /** Decompresses the sealed blocks from the one that may hold the given bucket on, back into the tail. */
+    private void unsealFrom(long bucketStart) {
+        int first = sealedCount;
+        while (first > 0 && sealed[first - 1].lastStart >= bucketStart) {
+            first--;
+        }
+        int unsealed = 0;
+        for (int b = first; b < sealedCount; b++) {
+            unsealed += sealed[b].count;
+        }
+        int capacity = starts.length;
+        while (capacity < tailSize + unsealed + 1) {
+            capacity *= 2;
+        }
+        resize(capacity);
+        System.arraycopy(starts, 0, starts, unsealed, tailSize);
+        System.arraycopy(mins, 0, mins, unsealed, tailSize);
+        System.arraycopy(maxs, 0, maxs, unsealed, tailSize);
+        System.arraycopy(sums, 0, sums, unsealed, tailSize);
+        System.arraycopy(counts, 0, counts, unsealed, tailSize);
+        double[] column = new double[BLOCK_SIZE];
+        long[] blockStarts = new long[BLOCK_SIZE];
+        int at = 0;
+        for (int b = first; b < sealedCount; b++) {
+            sealed[b].decode(blockStarts, column, mins, maxs, sums, counts, at);
+            System.arraycopy(blockStarts, 0, starts, at, sealed[b].count);
+            at += sealed[b].count;
+            sealed[b] = null;
+        }
+        tailSize += unsealed;
+        sealedCount = first;
+    }
+
+    /**
+     * Drops the buckets that end at or before the given time. Sealed buckets
+     * are dropped a block at a time, once the whole block has expired.
+     *
+     * @param cutoff the oldest time whose bucket is kept
+     * @return the number of buckets dropped
+     */
+    int evictBefore(long cutoff) {
+        int blocks = 0;
+        int dropped = 0;
+        while (blocks < sealedCount && sealed[blocks].lastStart + intervalMillis <= cutoff) {
+            dropped += sealed[blocks++].count;
+        }
+        if (blocks > 0) {
+            sealedCount -= blocks;
+            SealedBlock[] remaining = new SealedBlock[Math.max(4, sealedCount)];
+            System.arraycopy(sealed, blocks, remaining, 0, sealedCount);
+            sealed = remaining;
+        }
+        if (sealedCount == 0) {
+            int expired = 0;
+            while (expired < tailSize && starts[expired] + intervalMillis <= cutoff) {
+                expired++;
+            }
+            removeFromTail(expired);
+            dropped += expired;
+            int capacity = starts.length;
+            while (capacity > INITIAL_CAPACITY && capacity / 4 >= tailSize) {
+                capacity /= 2;
+            }
+            if (capacity < starts.length) {
+                resize(capacity);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Visits, in time order, the buckets that overlap the given time range.
+     *
+     * @param from    the start of the range
+     * @param to      the end of the range, inclusive
+     * @param visitor receives the buckets
+     */
+    void scan(long from, long to, BucketVisitor visitor) {
+        long[] blockStarts = null;
+        double[] column = null;
+        double[] blockMins = null;
+        double[] blockMaxs = null;
+        double[] blockSums = null;
+        long[] blockCounts = null;
+        for (int b = 0; b < sealedCount; b++) {
+            SealedBlock block = sealed[b];
+            if (block.lastStart + intervalMillis <= from) {
+                continue;
+            }
+            if (block.firstStart > to) {
+                return;
+            }
+            if (blockStarts == null) {
+                blockStarts = new long[BLOCK_SIZE];
+                column = new double[BLOCK_SIZE];
+                blockMins = new double[BLOCK_SIZE];
+                blockMaxs = new double[BLOCK_SIZE];
+                blockSums = new double[BLOCK_SIZE];
+                blockCounts = new long[BLOCK_SIZE];
+            }
+            block.decode(blockStarts, column, blockMins, blockMaxs, blockSums, blockCounts, 0);
+            for (int i = 0; i < block.count; i++) {
+                if (blockStarts[i] + intervalMillis > from && blockStarts[i] <= to) {
+                    visitor.visit(blockStarts[i], blockMins[i], blockMaxs[i], blockSums[i], blockCounts[i]);
+                }
+            }
+        }
+        int index = Arrays.binarySearch(starts, 0, tailSize, from - intervalMillis + 1);
+        for (int i = index < 0 ? -index - 1 : index; i < tailSize && starts[i] <= to; i++) {
+            visitor.visit(starts[i], mins[i], maxs[i], sums[i], counts[i]);
+        }
+    }
+
+    /**
+     * Estimates the heap used by the buckets.
+     *
+     * @return the estimated footprint in bytes
+     */
+    long footprintBytes() {
+        long bytes = 6L * ARRAY_HEADER_BYTES + 40L * starts.length + 8L * sealed.length;
+        for (int b = 0; b < sealedCount; b++) {
+            bytes += sealed[b].footprintBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * A compressed block of buckets: one {@link CompressedBlock} per column,
+     * each keyed by the bucket starts, which cost about a bit per bucket when
+     * the buckets are consecutive.
+     */
+    private static final class SealedBlock {
+        final int count;
+        final long firstStart;
+        final long lastStart;
+        final CompressedBlock minBlock;
+        final CompressedBlock maxBlock;
+        final CompressedBlock sumBlock;
+        final CompressedBlock countBlock;
+
+        SealedBlock(long[] starts, double[] mins, double[] maxs, double[] sums, long[] counts, int count) {
+            this.count = count;
+            this.firstStart = starts[0];
+            this.lastStart = starts[count - 1];
+            double[] countColumn = new double[count];
+            for (int i = 0; i < count; i++) {
+                countColumn[i] = counts[i];
+            }
+            this.minBlock = CompressedBlock.encode(starts, mins, count);
+            this.maxBlock = CompressedBlock.encode(starts, maxs, count);
+            this.sumBlock = CompressedBlock.encode(starts, sums, count);
+            this.countBlock = CompressedBlock.encode(starts, countColumn, count);
+        }
+
+        /** Decodes the columns into the given arrays from the given index on, using {@code column} as scratch. */
+        void decode(long[] starts, double[] column, double[] mins, double[] maxs, double[] sums, long[] counts,
+                int at) {
+            minBlock.decode(starts, column);
+            System.arraycopy(column, 0, mins, at, count);
+            maxBlock.decode(starts, column);
+            System.arraycopy(column, 0, maxs, at, count);
+            sumBlock.decode(starts, column);
+            System.arraycopy(column, 0, sums, at, count);
+            countBlock.decode(starts, column);
+            for (int i = 0; i < count; i++) {
+                counts[at + i] = (long) column[i];
+            }
+        }
+
+        long footprintBytes() {
+            return 48 + minBlock.footprintBytes() + maxBlock.footprintBytes() + sumBlock.footprintBytes()
+                    + countBlock.footprintBytes();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.records.RecordTypes;
+
+/**
+ * Writes and loads snapshots of a {@link DataStorage}. A snapshot stores each
+ * patient's series column-wise, a block of timestamps followed by a block of
+ * values, so loading maps the file and copies whole columns instead of
+ * parsing records.
+ * <p>
+ * Layout: the magic bytes {@code CGSS}, an {@code int} version and two
+ * {@code long} sequence numbers of the write-ahead log, then one section per
+ * series: the {@code int} patient id, the {@code long} log sequence number the
+ * patient was copied at, the {@code int} length and UTF-8 bytes of the record
+ * type label, the {@code int} sample count, the timestamps and the values. A
+ * patient id of -1 ends the file.
+ */
+final class StorageSnapshot {
+    private static final byte[] MAGIC = { 'C', 'G', 'S', 'S' };
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = MAGIC.length + 4 + 8 + 8;
+    private static final int END_OF_SNAPSHOT = -1;
+    private static final int COLUMN_BATCH = 8192;
+
+    /**
+     * The log sequence numbers a snapshot was taken between: every sample up to
+     * {@link #startSequence} is in it and samples after {@link #endSequence} are
+     * not. Each patient was copied at a sequence number in between, and holds
+     * exactly its samples up to that number.
+     */
+    static final class Coverage {
+        final long startSequence;
+        final long endSequence;
+        final long recordCount;
+        private final Map<Integer, Long> patientSequences;
+
+        Coverage(long startSequence, long endSequence, long recordCount, Map<Integer, Long> patientSequences) {
+            this.startSequence = startSequence;
+            this.endSequence = endSequence;
+            this.recordCount = recordCount;
+            this.patientSequences = patientSequences;
+        }
+
+        /**
+         * Returns whether the snapshot holds a logged sample of a patient.
+         *
+         * @param sequence  the log sequence number of the sample
+         * @param patientId the patient of the sample
+         * @return {@code true} if the sample is in the snapshot
+         */
+        boolean contains(long sequence, int patientId) {
+            // a patient missing from the snapshot had no samples up to the start sequence
+            return sequence <= patientSequences.getOrDefault(patientId, startSequence);
+        }
+    }
+
+    /** A patient's series copied together with the last log sequence number they contain. */
+    static final class PatientCopy {
+        final long sequence;
+        final List<TimeSeries.Copy> series;
+
+        PatientCopy(long sequence, List<TimeSeries.Copy> series) {
+            this.sequence = sequence;
+            this.series = series;
+        }
+    }
+
+    /** Copies a patient at a moment when every logged sample is also stored. */
+    interface PatientCopier {
+        PatientCopy copy(Patient patient);
+    }
+
+    private StorageSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the storage. The file is written under a temporary
+     * name, forced to disk and then renamed, so a crash never leaves a partial
+     * snapshot behind.
+     *
+     * @param storage       the storage to snapshot
+     * @param file          the snapshot file
+     * @param startSequence the last log sequence number known to be in the storage
+     *                      before the snapshot started
+     * @param copier        copies each patient with its log sequence number
+     * @param endSequence   a supplier of the last sequence number after the
+     *                      storage was read
+     * @return the number of samples written
+     * @throws IOException if the snapshot cannot be written
+     */
+    static long write(DataStorage storage, Path file, long startSequence, PatientCopier copier,
+            SequenceSupplier endSequence) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.put(MAGIC).putInt(VERSION).putLong(startSequence).putLong(0L);
+            for (Patient patient : storage.getAllPatients()) {
+                PatientCopy copy = copier.copy(patient);
+                for (TimeSeries.Copy series : copy.series) {
+                    byte[] label = RecordTypes.nameOf(series.recordType).getBytes(StandardCharsets.UTF_8);
+                    ensureRoom(channel, buffer, 20 + label.length);
+                    buffer.putInt(patient.getPatientId()).putLong(copy.sequence).putInt(label.length).put(label)
+                            .putInt(series.timestamps.length);
+                    for (long timestamp : series.timestamps) {
+                        ensureRoom(channel, buffer, 8);
+                        buffer.putLong(timestamp);
+                    }
+                    for (double value : series.values) {
+                        ensureRoom(channel, buffer, 8);
+                        buffer.putDouble(value);
+                    }
+                    records += series.timestamps.length;
+                }
+            }
+            ensureRoom(channel, buffer, 4);
+            buffer.putInt(END_OF_SNAPSHOT);
+            drain(channel, buffer);
+            // the end sequence is only known now that the storage has been read
+            ByteBuffer end = ByteBuffer.allocate(8).putLong(0, endSequence.get());
+            channel.write(end, MAGIC.length + 4 + 8);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records;
+    }
+
+    /** Supplies a log sequence number; may throw, unlike a plain supplier. */
+    interface SequenceSupplier {
+        long get() throws IOException;
+    }
+
+    private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Loads a snapshot, mapping each column of the file.
+     *
+     * @param file   the snapshot file
+     * @param target receives the samples, series by series
+     * @return the log sequence numbers the snapshot covers
+     * @throws IOException if the file is not a complete snapshot
+     */
+    static Coverage load(Path file, PatientDataListener target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            for (byte b : MAGIC) {
+                if (header.get() != b) {
+                    throw new IOException("Not a storage snapshot: " + file);
+                }
+            }
+            if (header.getInt() != VERSION) {
+                throw new IOException("Unsupported storage snapshot version: " + file);
+            }
+            long startSequence = header.getLong();
+            long endSequence = header.getLong();
+            long position = HEADER_SIZE;
+            long records = 0;
+            Map<Integer, Long> patientSequences = new HashMap<>();
+            long[] timestamps = new long[COLUMN_BATCH];
+            double[] values = new double[COLUMN_BATCH];
+            ByteBuffer sectionHeader = ByteBuffer.allocate(8);
+            while (true) {
+                sectionHeader.clear().limit(4);
+                readFully(channel, sectionHeader, position);
+                int patientId = sectionHeader.getInt(0);
+                position += 4;
+                if (patientId == END_OF_SNAPSHOT) {
+                    break;
+                }
+                sectionHeader.clear().limit(8);
+                readFully(channel, sectionHeader, position);
+                patientSequences.put(patientId, sectionHeader.getLong(0));
+                position += 8;
+                sectionHeader.clear().limit(4);
+                readFully(channel, sectionHeader, position);
+                ByteBuffer label = ByteBuffer.allocate(sectionHeader.getInt(0));
+                readFully(channel, label, position + 4);
+                int recordType = RecordTypes.codeOf(new String(label.array(), StandardCharsets.UTF_8));
+                position += 4 + label.capacity();
+                sectionHeader.clear().limit(4);
+                readFully(channel, sectionHeader, position);
+                int count = sectionHeader.getInt(0);
+                position += 4;
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, 16L * count);
+                LongBuffer timestampColumn = mapped.slice(0, 8 * count).asLongBuffer();
+                DoubleBuffer valueColumn = mapped.slice(8 * count, 8 * count).asDoubleBuffer();
+                for (int done = 0; done < count; done += COLUMN_BATCH) {
+                    int batch = Math.min(COLUMN_BATCH, count - done);
+                    timestampColumn.get(timestamps, 0, batch);
+                    valueColumn.get(values, 0, batch);
+                    for (int i = 0; i < batch; i++) {
+                        target.onPatientData(patientId, recordType, values[i], timestamps[i]);
+                    }
+                }
+                position += 16L * count;
+                records += count;
+            }
+            return new Coverage(startSequence, endSequence, records, patientSequences);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Truncated storage snapshot");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,191 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the {@code *.txt} files of a directory that the simulator's file
+ * output is still writing to, ingesting only the bytes appended since the
+ * last read.
+ * The reader remembers an offset per file, just after the last complete line
+ * it parsed, and reads from there with positional reads; a partially written
+ * last line is left for the next read. A file that shrinks is assumed to have
+ * been truncated and is read again from the start.
+ * {@link #readData(DataStorage)} performs a single incremental pass over all
+ * files; {@link #follow(DataStorage)} keeps ingesting as a {@link WatchService}
+ * reports changes, until the reader is closed.
+ */
+public class TailingDataReader implements DataReader, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long RESCAN_INTERVAL_MILLIS = 1000;
+
+    private final Path directory;
+    private final Map<Path, TailedFile> files = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+    private volatile long recordCount;
+    private volatile long byteCount;
+
+    /**
+     * Creates a reader for the given directory.
+     *
+     * @param directory the directory the simulator writes its files to
+     */
+    public TailingDataReader(String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    /**
+     * Ingests everything appended to the directory's files since the previous
+     * pass, or the whole files on the first pass.
+     *
+     * @param dataStorage the storage where data will be stored
+     * @throws IOException if a file cannot be read or contains a malformed line
+     */
+    @Override
+    public synchronized void readData(DataStorage dataStorage) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.txt")) {
+            for (Path file : stream) {
+                ingest(file, dataStorage);
+            }
+        }
+    }
+
+    /**
+     * Ingests the directory's files and keeps ingesting appended data until
+     * {@link #close()} is called. Besides reacting to change events, the files
+     * are checked every second in case an event was missed.
+     *
+     * @param dataStorage the storage where data will be stored
+     * @throws IOException if a file cannot be read or contains a malformed line
+     */
+    public void follow(DataStorage dataStorage) throws IOException {
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            watchService = watcher;
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            readData(dataStorage);
+            while (!closed) {
+                WatchKey key = watcher.poll(RESCAN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    readData(dataStorage);
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        readData(dataStorage);
+                    } else {
+                        Path file = directory.resolve((Path) event.context());
+                        if (file.getFileName().toString().endsWith(".txt")) {
+                            synchronized (this) {
+                                ingest(file, dataStorage);
+                            }
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed while waiting for changes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watchService = null;
+        }
+    }
+
+    private void ingest(Path file, DataStorage dataStorage) throws IOException {
+        TailedFile tailed = files.computeIfAbsent(file, TailedFile::new);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < tailed.offset) {
+                tailed.offset = 0;
+            }
+            buffer.clear();
+            long position = tailed.offset;
+            while (position < size) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                int parsed = tailed.parser.parse(buffer, 0, buffer.position(), false, tailed.addingTo(dataStorage));
+                if (parsed == 0 && !buffer.hasRemaining()) {
+                    throw new IOException("Line longer than " + BUFFER_SIZE + " bytes in file: " + file);
+                }
+                tailed.offset += parsed;
+                byteCount += parsed;
+                buffer.limit(buffer.position()).position(parsed);
+                buffer.compact();
+            }
+        } catch (NoSuchFileException e) {
+            files.remove(file);
+        }
+    }
+
+    /**
+     * Stops {@link #follow(DataStorage)}; a pass in progress completes first.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService watcher = watchService;
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Returns the number of records ingested so far.
+     *
+     * @return the ingested record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the number of bytes of complete lines ingested so far.
+     *
+     * @return the ingested byte count
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /** The read position and parser of one followed file. */
+    private final class TailedFile implements PatientDataListener {
+        private final RecordLineParser parser;
+        private long offset;
+        private DataStorage dataStorage;
+
+        TailedFile(Path file) {
+            this.parser = new RecordLineParser(file.toString());
+        }
+
+        PatientDataListener addingTo(DataStorage dataStorage) {
+            this.dataStorage = dataStorage;
+            return this;
+        }
+
+        @Override
+        public void onPatientData(int patientId, int recordType, double measurementValue, long timestamp) {
+            dataStorage.addPatientData(patientId, measurementValue, recordType, timestamp);
+            recordCount++;
+        }
+    }
+}
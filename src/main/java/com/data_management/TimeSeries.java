@@ -0,0 +1,392 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+import com.records.RecordTypes;
+
+/**
+ * A growable series of samples of one record type for one patient.
+ * Timestamps and values are stored column-wise in parallel {@code long[]} and
+ * {@code double[]} chunks, so a stored sample costs 16 bytes plus a small,
+ * amortized share of the chunk headers.
+ * Samples are kept in timestamp order so time ranges can be located by binary
+ * search. Chunks never move once allocated; growing the series only allocates
+ * a new chunk. The first chunk starts small and doubles until it reaches
+ * {@link #CHUNK_SIZE} so rarely sampled types (e.g. cholesterol) stay cheap.
+ * <p>
+ * Only the newest {@link #HOT_CHUNKS} chunks are kept as plain arrays, so the
+ * recent windows alert rules query are read directly. Older chunks are sealed
+ * into {@link CompressedBlock}s and decompressed on read into a small
+ * per-thread cache of decoded blocks; sequential reads decode each block once.
+ * A late sample that belongs in a sealed chunk unseals it and the chunks after
+ * it; they are sealed again when the next chunk is started.
+ */
+final class TimeSeries {
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    static final int HOT_CHUNKS = 2;
+    private static final int DECODED_BLOCKS_PER_THREAD = 16;
+    private static final ThreadLocal<DecodeCache> DECODED = ThreadLocal.withInitial(DecodeCache::new);
+
+    private final int recordType;
+    private long[][] timestampChunks;
+    private double[][] valueChunks;
+    private CompressedBlock[] sealedChunks;
+    private int firstRawChunk;
+    private int size;
+    private long lastSequence;
+
+    /**
+     * Creates an empty series for the given record type.
+     *
+     * @param recordType the record type code, see {@link RecordTypes}
+     */
+    TimeSeries(int recordType) {
+        this.recordType = recordType;
+        this.timestampChunks = new long[][] { new long[INITIAL_CAPACITY] };
+        this.valueChunks = new double[][] { new double[INITIAL_CAPACITY] };
+        this.sealedChunks = new CompressedBlock[1];
+    }
+
+    /**
+     * Adds a sample, keeping the series in timestamp order.
+     * In-order samples are appended; a late sample is shifted into place from
+     * the tail, which is cheap for the slightly out-of-order arrivals produced
+     * by the simulator's per-patient tasks. Samples with equal timestamps keep
+     * their arrival order.
+     *
+     * @param timestamp the timestamp of the sample
+     * @param value     the measured value
+     * @param sequence  the owner's append counter, used to order samples of
+     *                  different series that share a timestamp
+     */
+    void add(long timestamp, double value, long sequence) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int offset = size & CHUNK_MASK;
+        ensureCapacity(chunk, offset);
+        int index = size;
+        if (size > 0 && timestamp < timestampAt(size - 1)) {
+            index = upperBound(timestamp);
+            if ((index >>> CHUNK_SHIFT) < firstRawChunk) {
+                unsealFrom(index >>> CHUNK_SHIFT);
+            }
+            for (int i = size; i > index; i--) {
+                set(i, timestampAt(i - 1), valueAt(i - 1));
+            }
+        }
+        set(index, timestamp, value);
+        size++;
+        lastSequence = sequence;
+        if (offset == 0 && chunk >= HOT_CHUNKS) {
+            sealBefore(chunk - HOT_CHUNKS + 1);
+        }
+    }
+
+    /** Compresses the raw chunks before the given chunk. */
+    private void sealBefore(int chunk) {
+        for (int c = firstRawChunk; c < chunk; c++) {
+            sealedChunks[c] = CompressedBlock.encode(timestampChunks[c], valueChunks[c], CHUNK_SIZE);
+            timestampChunks[c] = null;
+            valueChunks[c] = null;
+        }
+        firstRawChunk = Math.max(firstRawChunk, chunk);
+    }
+
+    /** Decompresses the sealed chunks from the given chunk on, so they can be modified. */
+    private void unsealFrom(int chunk) {
+        for (int c = chunk; c < firstRawChunk; c++) {
+            long[] timestamps = new long[CHUNK_SIZE];
+            double[] values = new double[CHUNK_SIZE];
+            sealedChunks[c].decode(timestamps, values);
+            timestampChunks[c] = timestamps;
+            valueChunks[c] = values;
+            sealedChunks[c] = null;
+        }
+        firstRawChunk = chunk;
+    }
+
+    private void set(int index, long timestamp, double value) {
+        timestampChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = timestamp;
+        valueChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Returns the index of the first sample whose timestamp is at least the
+     * given time, or {@link #size()} if there is none.
+     *
+     * @param timestamp the lower bound of the range
+     * @return the first index in range
+     */
+    int lowerBound(long timestamp) {
+        return search(timestamp, false);
+    }
+
+    /**
+     * Returns the index of the first sample whose timestamp is after the given
+     * time, or {@link #size()} if there is none.
+     *
+     * @param timestamp the upper bound of the range, inclusive
+     * @return the index one past the last sample in range
+     */
+    int upperBound(long timestamp) {
+        return search(timestamp, true);
+    }
+
+    /**
+     * Finds the first sample after (or at, unless {@code after} is set) the
+     * given time. The chunk is located by its last timestamp first, so only
+     * one sealed chunk is ever decompressed.
+     */
+    private int search(long timestamp, boolean after) {
+        int low = 0;
+        int high = size == 0 ? 0 : ((size - 1) >>> CHUNK_SHIFT) + 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long last = sealedChunks[mid] != null ? sealedChunks[mid].lastTimestamp()
+                    : timestampAt(Math.min(size, (mid + 1) << CHUNK_SHIFT) - 1);
+            if (last < timestamp || (after && last == timestamp)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = Math.min(size, (low + 1) << CHUNK_SHIFT);
+        high = end;
+        low = Math.min(low << CHUNK_SHIFT, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long current = timestampAt(mid);
+            if (current < timestamp || (after && current == timestamp)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int chunk, int offset) {
+        if (chunk == 0) {
+            long[] first = timestampChunks[0];
+            if (offset == first.length) {
+                int grown = Math.min(first.length * 2, CHUNK_SIZE);
+                timestampChunks[0] = Arrays.copyOf(first, grown);
+                valueChunks[0] = Arrays.copyOf(valueChunks[0], grown);
+            }
+            return;
+        }
+        if (offset != 0) {
+            return;
+        }
+        if (chunk == timestampChunks.length) {
+            timestampChunks = Arrays.copyOf(timestampChunks, chunk * 2);
+            valueChunks = Arrays.copyOf(valueChunks, chunk * 2);
+            sealedChunks = Arrays.copyOf(sealedChunks, chunk * 2);
+        }
+        if (timestampChunks[chunk] == null) {
+            timestampChunks[chunk] = new long[CHUNK_SIZE];
+            valueChunks[chunk] = new double[CHUNK_SIZE];
+        }
+    }
+
+    int recordType() {
+        return recordType;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    long lastTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestampAt(size - 1);
+    }
+
+    long timestampAt(int index) {
+        long[] chunk = timestampChunks[index >>> CHUNK_SHIFT];
+        if (chunk == null) {
+            return decoded(index >>> CHUNK_SHIFT).timestamps[index & CHUNK_MASK];
+        }
+        return chunk[index & CHUNK_MASK];
+    }
+
+    double valueAt(int index) {
+        double[] chunk = valueChunks[index >>> CHUNK_SHIFT];
+        if (chunk == null) {
+            return decoded(index >>> CHUNK_SHIFT).values[index & CHUNK_MASK];
+        }
+        return chunk[index & CHUNK_MASK];
+    }
+
+    private DecodedBlock decoded(int chunk) {
+        CompressedBlock block = sealedChunks[chunk];
+        if (block == null) {
+            throw new IllegalStateException("Chunk " + chunk + " is neither raw nor sealed");
+        }
+        return DECODED.get().get(block);
+    }
+
+    /**
+     * Copies all samples into new arrays.
+     *
+     * @return the copy
+     */
+    Copy copy() {
+        long[] timestamps = new long[size];
+        double[] values = new double[size];
+        for (int c = 0, start = 0; start < size; c++, start += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, size - start);
+            if (timestampChunks[c] != null) {
+                System.arraycopy(timestampChunks[c], 0, timestamps, start, length);
+                System.arraycopy(valueChunks[c], 0, values, start, length);
+            } else {
+                DecodedBlock block = decoded(c);
+                System.arraycopy(block.timestamps, 0, timestamps, start, length);
+                System.arraycopy(block.values, 0, values, start, length);
+            }
+        }
+        return new Copy(recordType, timestamps, values);
+    }
+
+    int sealedChunkCount() {
+        return firstRawChunk;
+    }
+
+    /**
+     * Returns the sealed chunks at the head of the series whose samples are all
+     * before the given time. The hot chunks are never returned.
+     *
+     * @param cutoff the oldest timestamp to keep
+     * @return the evictable blocks, oldest first
+     */
+    CompressedBlock[] evictableBlocks(long cutoff) {
+        int chunks = 0;
+        while (chunks < firstRawChunk && sealedChunks[chunks].lastTimestamp() < cutoff) {
+            chunks++;
+        }
+        return Arrays.copyOf(sealedChunks, chunks);
+    }
+
+    /**
+     * Drops the given blocks from the head of the series, if they are still
+     * its first chunks; a late sample may have unsealed them in the meantime.
+     *
+     * @param blocks blocks returned by {@link #evictableBlocks(long)}
+     * @return {@code true} if the blocks were dropped
+     */
+    boolean evict(CompressedBlock[] blocks) {
+        int chunks = blocks.length;
+        if (chunks == 0 || chunks > firstRawChunk) {
+            return false;
+        }
+        for (int c = 0; c < chunks; c++) {
+            if (sealedChunks[c] != blocks[c]) {
+                return false;
+            }
+        }
+        int remaining = timestampChunks.length - chunks;
+        int length = timestampChunks.length;
+        // shrink the chunk tables too once most of their slots are unused
+        while (length > 1 && length / 4 >= ((size - 1) >>> CHUNK_SHIFT) + 1 - chunks) {
+            length /= 2;
+        }
+        timestampChunks = shift(timestampChunks, chunks, remaining, length);
+        valueChunks = shift(valueChunks, chunks, remaining, length);
+        sealedChunks = shift(sealedChunks, chunks, remaining, length);
+        size -= chunks << CHUNK_SHIFT;
+        firstRawChunk -= chunks;
+        return true;
+    }
+
+    private static <T> T[] shift(T[] table, int from, int count, int length) {
+        T[] shifted = Arrays.copyOf(table, length);
+        Arrays.fill(shifted, null);
+        System.arraycopy(table, from, shifted, 0, Math.min(count, length));
+        return shifted;
+    }
+
+    /**
+     * Estimates the heap used by this series, counting the allocated chunks and
+     * the arrays referencing them.
+     *
+     * @return the estimated footprint in bytes
+     */
+    long footprintBytes() {
+        long bytes = 3L * (ARRAY_HEADER_BYTES + 8L * timestampChunks.length);
+        for (int i = 0; i < timestampChunks.length; i++) {
+            if (sealedChunks[i] != null) {
+                bytes += sealedChunks[i].footprintBytes();
+            } else if (timestampChunks[i] != null) {
+                bytes += 2L * ARRAY_HEADER_BYTES + 16L * timestampChunks[i].length;
+            }
+        }
+        return bytes;
+    }
+
+    /** The samples of a series copied out of it, e.g. for a snapshot. */
+    static final class Copy {
+        final int recordType;
+        final long[] timestamps;
+        final double[] values;
+
+        Copy(int recordType, long[] timestamps, double[] values) {
+            this.recordType = recordType;
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+    }
+
+    /** A buffer holding the decompressed samples of one sealed chunk. */
+    private static final class DecodedBlock {
+        final long[] timestamps = new long[CHUNK_SIZE];
+        final double[] values = new double[CHUNK_SIZE];
+        CompressedBlock block;
+        long lastUse;
+    }
+
+    /**
+     * A thread's least-recently-used cache of decoded blocks, large enough for a
+     * merge across all record types of a patient to decode each block once.
+     */
+    private static final class DecodeCache {
+        private final DecodedBlock[] blocks = new DecodedBlock[DECODED_BLOCKS_PER_THREAD];
+        private DecodedBlock lastHit;
+        private long clock;
+
+        DecodeCache() {
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = new DecodedBlock();
+            }
+            lastHit = blocks[0];
+        }
+
+        DecodedBlock get(CompressedBlock block) {
+            if (lastHit.block == block) {
+                return lastHit;
+            }
+            DecodedBlock victim = blocks[0];
+            for (DecodedBlock candidate : blocks) {
+                if (candidate.block == block) {
+                    victim = candidate;
+                    break;
+                }
+                if (candidate.lastUse < victim.lastUse) {
+                    victim = candidate;
+                }
+            }
+            if (victim.block != block) {
+                block.decode(victim.timestamps, victim.values);
+                victim.block = block;
+            }
+            victim.lastUse = ++clock;
+            lastHit = victim;
+            return victim;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.records.BinaryRecordFormat;
+import com.records.RecordTypes;
+
+/**
+ * An append-only log of samples, written to segment files in the
+ * {@link BinaryRecordFormat}. Every appended sample gets the next sequence
+ * number; a segment file is named after the sequence number of its first
+ * sample, so replay knows the sequence number of every sample it reads.
+ * <p>
+ * Appending only encodes the sample into an in-memory buffer. A committer
+ * thread writes the buffer and forces it to disk once per commit interval, or
+ * as soon as the buffer fills up or {@link #sync()} asks for it, so one disk
+ * flush covers every sample appended since the previous one (group commit).
+ * A new segment is started when the current one exceeds the segment size.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long commitIntervalMillis;
+    private final BinaryRecordFormat.Encoder encoder = new BinaryRecordFormat.Encoder(false);
+    private final Thread committer;
+
+    // guarded by this
+    private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer committing = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long sequence;
+    private boolean commitRequested;
+    private boolean running = true;
+    private IOException failure;
+
+    // used by the committer thread only
+    private FileChannel segment;
+    private long segmentSize;
+    private volatile long durableSequence;
+
+    /**
+     * Opens a log that continues after the given sequence number, starting a new
+     * segment, and starts its committer thread.
+     *
+     * @param directory            the directory of the segment files
+     * @param lastSequence         the sequence number of the last sample already
+     *                             logged, 0 for a new log
+     * @param segmentBytes         the size after which a new segment is started
+     * @param commitIntervalMillis the longest time an appended sample waits to
+     *                             be written to disk
+     * @throws IOException if the first segment cannot be created
+     */
+    public WriteAheadLog(Path directory, long lastSequence, long segmentBytes, long commitIntervalMillis)
+            throws IOException {
+        if (segmentBytes < 1 || commitIntervalMillis < 1) {
+            throw new IllegalArgumentException("Segment size and commit interval must be positive");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.sequence = lastSequence;
+        this.durableSequence = lastSequence;
+        Files.createDirectories(directory);
+        openSegment(lastSequence + 1);
+        BinaryRecordFormat.writeHeader(pending);
+        encoder.startSession(pending);
+        this.committer = new Thread(this::commitLoop, "write-ahead-log");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Appends a sample. The sample is durable once {@link #getDurableSequence()}
+     * reaches the returned sequence number.
+     *
+     * @param patientId  the ID of the patient
+     * @param recordType the record type code
+     * @param value      the measured value
+     * @param timestamp  the timestamp of the sample
+     * @return the sequence number of the sample
+     * @throws IOException if the log failed or is closed
+     */
+    public synchronized long append(int patientId, int recordType, double value, long timestamp)
+            throws IOException {
+        String label = RecordTypes.nameOf(recordType);
+        while (true) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+            if (!running) {
+                throw new IOException("Write-ahead log is closed");
+            }
+            if (encoder.encode(pending, patientId, timestamp, label, value)) {
+                return ++sequence;
+            }
+            // the buffer is full: have it committed and wait for the swap
+            commitRequested = true;
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while appending to the write-ahead log", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until every sample appended before this call is on disk.
+     *
+     * @throws IOException if the log failed before the samples were written
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            target = sequence;
+            commitRequested = true;
+            notifyAll();
+            try {
+                while (durableSequence < target && failure == null && committer.isAlive()) {
+                    wait(commitIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while syncing the write-ahead log", e);
+            }
+            if (durableSequence < target) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            boolean roll;
+            boolean last;
+            synchronized (this) {
+                try {
+                    if (running && !commitRequested) {
+                        wait(commitIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                commitRequested = false;
+                last = !running;
+                batch = pending;
+                pending = committing;
+                pending.clear();
+                committing = batch;
+                batchSequence = sequence;
+                roll = segmentSize + batch.position() >= segmentBytes;
+                if (roll) {
+                    // the records after this batch start a new segment and session
+                    BinaryRecordFormat.writeHeader(pending);
+                    encoder.startSession(pending);
+                }
+                notifyAll();
+            }
+            try {
+                write(batch);
+                if (roll) {
+                    segment.close();
+                    openSegment(batchSequence + 1);
+                }
+                synchronized (this) {
+                    durableSequence = batchSequence;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void write(ByteBuffer batch) throws IOException {
+        batch.flip();
+        if (!batch.hasRemaining()) {
+            return;
+        }
+        segmentSize += batch.remaining();
+        while (batch.hasRemaining()) {
+            segment.write(batch);
+        }
+        segment.force(false);
+    }
+
+    /** Creates the segment starting at the given sequence number; its header is written with the next batch. */
+    private void openSegment(long firstSequence) throws IOException {
+        // an existing file of that name holds no complete sample, e.g. it was just created before a crash
+        segment = FileChannel.open(segmentPath(directory, firstSequence), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentSize = 0;
+    }
+
+    /**
+     * Returns the sequence number of the last appended sample.
+     *
+     * @return the last sequence number
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number up to which all samples are on disk.
+     *
+     * @return the durable sequence number
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Deletes the segments whose samples all have a sequence number up to the
+     * given one, e.g. because a snapshot contains them. The current segment is
+     * never deleted.
+     *
+     * @param sequence the last sequence number that may be dropped
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void deleteSegmentsUpTo(long sequence) throws IOException {
+        List<Long> starts = segmentStarts(directory);
+        for (int i = 0; i + 1 < starts.size(); i++) {
+            // a segment ends just before the next one starts
+            if (starts.get(i + 1) - 1 <= sequence) {
+                Files.deleteIfExists(segmentPath(directory, starts.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Commits the remaining samples, stops the committer thread and closes the
+     * current segment.
+     *
+     * @throws IOException if the remaining samples could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    /**
+     * Receives the samples read back from a log.
+     */
+    interface ReplayHandler {
+        void onSample(long sequence, int patientId, int recordType, double value, long timestamp);
+    }
+
+    /**
+     * Reads back every sample logged in a directory after the given sequence
+     * number, in sequence order. A segment ending in a torn or corrupt frame,
+     * as left by a crash, is read up to its last complete sample. Only the
+     * newest segment may lose samples that way: an earlier segment must reach
+     * up to the start of the next one, since it was complete on disk before
+     * the next one was created.
+     *
+     * @param directory     the directory of the segment files
+     * @param afterSequence the sequence number after which samples are wanted
+     * @param handler       receives the samples
+     * @return the sequence number of the last sample in the log, at least
+     *         {@code afterSequence}
+     * @throws IOException if a segment cannot be read, or an earlier segment
+     *                     ends before the samples the next one starts with
+     */
+    static long replay(Path directory, long afterSequence, ReplayHandler handler) throws IOException {
+        long last = afterSequence;
+        if (!Files.isDirectory(directory)) {
+            return last;
+        }
+        List<Long> starts = segmentStarts(directory);
+        for (int i = 0; i < starts.size(); i++) {
+            if (i + 1 < starts.size() && starts.get(i + 1) - 1 <= afterSequence) {
+                continue;
+            }
+            long[] sequence = { starts.get(i) - 1 };
+            BinaryRecordFormat.Decoder decoder = new BinaryRecordFormat.Decoder();
+            IOException tornTail = null;
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, starts.get(i)),
+                    StandardOpenOption.READ)) {
+                if (channel.size() >= BinaryRecordFormat.HEADER_SIZE) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    BinaryRecordFormat.readHeader(mapped);
+                    decoder.decode(mapped, (patientId, timestamp, labelCode, value) -> {
+                        long current = ++sequence[0];
+                        if (current > afterSequence) {
+                            handler.onSample(current, patientId, RecordTypes.codeOf(decoder.labelOf(labelCode)),
+                                    value, timestamp);
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                // a torn tail: the samples before it were delivered
+                tornTail = e;
+            }
+            last = Math.max(last, sequence[0]);
+            if (i + 1 < starts.size() && last + 1 < starts.get(i + 1)) {
+                throw new IOException("Write-ahead log segment " + starts.get(i) + " ends at sequence " + sequence[0]
+                        + ", samples up to " + (starts.get(i + 1) - 1) + " are lost", tornTail);
+            }
+            if (tornTail != null) {
+                System.err.println("Write-ahead log segment " + starts.get(i) + " ends early: " + tornTail.getMessage());
+            }
+        }
+        return last;
+    }
+
+    private static List<Long> segmentStarts(Path directory) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                starts.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        starts.sort(null);
+        return starts;
+    }
+
+    private static Path segmentPath(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,291 @@
+package com.records;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact, fixed-width binary encoding of simulator records, shared by the
+ * binary output strategy and the binary reader of the data management side.
+ * <p>
+ * A stream starts with the magic bytes {@code CGBR} and a version byte, followed
+ * by frames. Every frame starts with a big-endian {@code short}:
+ * <ul>
+ * <li>{@code 0..32767} — a record: the label code, then the {@code int} patient
+ * id, the timestamp and the {@code double} value. The timestamp is a
+ * {@code long}, or, in delta mode, an {@code int} difference to the previous
+ * record's timestamp, making a record 22 or 18 bytes.</li>
+ * <li>{@link #LABEL_FRAME} — defines a label code: the {@code short} code, the
+ * {@code short} byte length and the UTF-8 bytes of the label. Labels are
+ * defined once, before their first record.</li>
+ * <li>{@link #TIME_FRAME} — the {@code long} timestamp the next delta refers
+ * to, written when a delta does not fit in an {@code int}.</li>
+ * <li>{@link #SESSION_FRAME} — a flags byte; starts a new session with no
+ * labels defined, e.g. when a writer appends to an existing file.</li>
+ * </ul>
+ * Encoding and decoding allocate nothing per record.
+ */
+public final class BinaryRecordFormat {
+    static final byte[] MAGIC = { 'C', 'G', 'B', 'R' };
+    static final byte VERSION = 1;
+    public static final int HEADER_SIZE = MAGIC.length + 1;
+    static final short LABEL_FRAME = (short) 0xFFFF;
+    static final short TIME_FRAME = (short) 0xFFFE;
+    static final short SESSION_FRAME = (short) 0xFFFD;
+    static final byte DELTA_TIMESTAMPS = 1;
+    private static final int MAX_LABELS = 0x8000;
+    // the largest frame sequence one record can need: label, time and record frames
+    private static final int MAX_FIXED_BYTES = 6 + 10 + 22;
+
+    private BinaryRecordFormat() {
+    }
+
+    /**
+     * Writes the stream header.
+     *
+     * @param out the buffer to write to
+     */
+    public static void writeHeader(ByteBuffer out) {
+        out.put(MAGIC).put(VERSION);
+    }
+
+    /**
+     * Reads and checks the stream header.
+     *
+     * @param in the buffer to read from, positioned at the start of the stream
+     * @throws IOException if the bytes are not a binary record stream
+     */
+    public static void readHeader(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_SIZE) {
+            throw new IOException("Truncated binary record header");
+        }
+        for (byte b : MAGIC) {
+            if (in.get() != b) {
+                throw new IOException("Not a binary record stream");
+            }
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary record version: " + version);
+        }
+    }
+
+    /**
+     * Converts the data string of a simulator record to its numeric value: a
+     * trailing {@code %} is ignored, and the alert states {@code triggered} and
+     * {@code resolved} become 1 and 0.
+     *
+     * @param data the data as passed to an output strategy of the simulator
+     * @return the numeric value
+     * @throws NumberFormatException if the data is not numeric
+     */
+    public static double toValue(String data) {
+        if (data.equals("triggered")) {
+            return 1.0;
+        }
+        if (data.equals("resolved")) {
+            return 0.0;
+        }
+        if (data.endsWith("%")) {
+            return Double.parseDouble(data.substring(0, data.length() - 1));
+        }
+        return Double.parseDouble(data);
+    }
+
+    /**
+     * Encodes records of one session. An encoder is not thread-safe.
+     */
+    public static final class Encoder {
+        private final Map<String, Short> labelCodes = new HashMap<>();
+        private final boolean deltaTimestamps;
+        private long previousTimestamp;
+
+        /**
+         * Creates an encoder.
+         *
+         * @param deltaTimestamps whether to write timestamps as {@code int}
+         *                        differences to the previous record
+         */
+        public Encoder(boolean deltaTimestamps) {
+            this.deltaTimestamps = deltaTimestamps;
+        }
+
+        /**
+         * Writes a session frame, which must precede the first record of the
+         * encoder.
+         *
+         * @param out the buffer to write to
+         */
+        public void startSession(ByteBuffer out) {
+            out.putShort(SESSION_FRAME).put(deltaTimestamps ? DELTA_TIMESTAMPS : 0);
+            labelCodes.clear();
+            previousTimestamp = 0;
+        }
+
+        /**
+         * Writes a record, preceded by the frames it depends on. Nothing is
+         * written if the buffer has too little room left.
+         *
+         * @param out       the buffer to write to
+         * @param patientId the ID of the patient
+         * @param timestamp the timestamp of the record
+         * @param label     the label of the record
+         * @param value     the value of the record
+         * @return {@code true} if the record was written, {@code false} if the
+         *         buffer must be drained first
+         */
+        public boolean encode(ByteBuffer out, int patientId, long timestamp, String label, double value) {
+            Short code = labelCodes.get(label);
+            if (out.remaining() < MAX_FIXED_BYTES + (code == null ? 3 * label.length() : 0)) {
+                return false;
+            }
+            if (code == null) {
+                code = defineLabel(out, label);
+            }
+            if (deltaTimestamps) {
+                long delta = timestamp - previousTimestamp;
+                if (delta != (int) delta) {
+                    out.putShort(TIME_FRAME).putLong(timestamp);
+                    delta = 0;
+                }
+                out.putShort(code).putInt(patientId).putInt((int) delta);
+                previousTimestamp = timestamp;
+            } else {
+                out.putShort(code).putInt(patientId).putLong(timestamp);
+            }
+            out.putDouble(value);
+            return true;
+        }
+
+        private short defineLabel(ByteBuffer out, String label) {
+            if (labelCodes.size() == MAX_LABELS - 3) {
+                throw new IllegalStateException("Too many labels");
+            }
+            short code = (short) labelCodes.size();
+            byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Label too long: " + bytes.length + " bytes");
+            }
+            out.putShort(LABEL_FRAME).putShort(code).putShort((short) bytes.length).put(bytes);
+            labelCodes.put(label, code);
+            return code;
+        }
+    }
+
+    /**
+     * Receives decoded records.
+     */
+    public interface RecordHandler {
+        /**
+         * Called for each decoded record.
+         *
+         * @param patientId the ID of the patient
+         * @param timestamp the timestamp of the record
+         * @param labelCode the session's code of the record's label, see
+         *                  {@link Decoder#labelOf(int)}
+         * @param value     the value of the record
+         */
+        void onRecord(int patientId, long timestamp, int labelCode, double value);
+    }
+
+    /**
+     * Decodes the frames following a stream header. A decoder keeps the
+     * labels and timestamp base of the current session and is not
+     * thread-safe.
+     */
+    public static final class Decoder {
+        private String[] labels = new String[16];
+        private int labelGeneration;
+        private boolean deltaTimestamps;
+        private long previousTimestamp;
+
+        /**
+         * Decodes the complete frames between the buffer's position and limit,
+         * leaving the position at the start of the first incomplete frame.
+         *
+         * @param in      the buffer to read from
+         * @param handler receives the decoded records
+         * @return the number of records decoded
+         * @throws IOException if the frames are malformed
+         */
+        public int decode(ByteBuffer in, RecordHandler handler) throws IOException {
+            int records = 0;
+            int recordSize = deltaTimestamps ? 18 : 22;
+            while (in.remaining() >= 2) {
+                int start = in.position();
+                short frame = in.getShort();
+                if (frame >= 0) {
+                    if (in.remaining() < recordSize - 2) {
+                        in.position(start);
+                        break;
+                    }
+                    if (frame >= labels.length || labels[frame] == null) {
+                        throw new IOException("Record with undefined label code " + frame);
+                    }
+                    int patientId = in.getInt();
+                    long timestamp = deltaTimestamps ? previousTimestamp + in.getInt() : in.getLong();
+                    previousTimestamp = timestamp;
+                    handler.onRecord(patientId, timestamp, frame, in.getDouble());
+                    records++;
+                } else if (frame == LABEL_FRAME) {
+                    if (in.remaining() < 4 || in.remaining() < 4 + (in.getShort(in.position() + 2) & 0xFFFF)) {
+                        in.position(start);
+                        break;
+                    }
+                    int code = in.getShort();
+                    byte[] bytes = new byte[in.getShort() & 0xFFFF];
+                    in.get(bytes);
+                    if (code < 0) {
+                        throw new IOException("Invalid label code " + code);
+                    }
+                    if (code >= labels.length) {
+                        labels = Arrays.copyOf(labels, Math.max(code + 1, labels.length * 2));
+                    }
+                    labels[code] = new String(bytes, StandardCharsets.UTF_8);
+                } else if (frame == TIME_FRAME) {
+                    if (in.remaining() < 8) {
+                        in.position(start);
+                        break;
+                    }
+                    previousTimestamp = in.getLong();
+                } else if (frame == SESSION_FRAME) {
+                    if (in.remaining() < 1) {
+                        in.position(start);
+                        break;
+                    }
+                    deltaTimestamps = (in.get() & DELTA_TIMESTAMPS) != 0;
+                    recordSize = deltaTimestamps ? 18 : 22;
+                    previousTimestamp = 0;
+                    Arrays.fill(labels, null);
+                    labelGeneration++;
+                } else {
+                    throw new IOException("Unknown frame type " + (frame & 0xFFFF));
+                }
+            }
+            return records;
+        }
+
+        /**
+         * Returns the label of a code of the current session.
+         *
+         * @param labelCode the code passed to {@link RecordHandler#onRecord}
+         * @return the label
+         */
+        public String labelOf(int labelCode) {
+            return labels[labelCode];
+        }
+
+        /**
+         * Returns a counter that changes whenever the label codes are reset, so
+         * callers caching per-code data know when to drop it.
+         *
+         * @return the label generation
+         */
+        public int labelGeneration() {
+            return labelGeneration;
+        }
+    }
+}
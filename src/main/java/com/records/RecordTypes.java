@@ -0,0 +1,107 @@
+package com.records;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns record type labels (e.g. "ECG", "Saturation") to small integer codes.
+ * The storage engine keys its per-patient series by these codes so a stored
+ * sample never has to carry its label around.
+ * The labels produced by the simulator are registered up front, so their codes
+ * are stable and can be used as constants.
+ */
+public final class RecordTypes {
+    public static final int ECG = 0;
+    public static final int SATURATION = 1;
+    public static final int SYSTOLIC_PRESSURE = 2;
+    public static final int DIASTOLIC_PRESSURE = 3;
+    public static final int CHOLESTEROL = 4;
+    public static final int WHITE_BLOOD_CELLS = 5;
+    public static final int RED_BLOOD_CELLS = 6;
+    public static final int ALERT = 7;
+
+    private static final ConcurrentHashMap<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    static {
+        register("ECG");
+        register("Saturation");
+        register("SystolicPressure");
+        register("DiastolicPressure");
+        register("Cholesterol");
+        register("WhiteBloodCells");
+        register("RedBloodCells");
+        register("Alert");
+    }
+
+    private RecordTypes() {
+    }
+
+    /**
+     * Returns the code of the given record type, registering it if it has not
+     * been seen before.
+     *
+     * @param recordType the record type label
+     * @return the code of the record type
+     */
+    public static int codeOf(String recordType) {
+        Integer code = CODES.get(recordType);
+        if (code != null) {
+            return code;
+        }
+        return register(recordType);
+    }
+
+    /**
+     * Returns the code of the given record type without registering it, for
+     * read paths: a query for a label nothing was ever stored under must not
+     * grow the table.
+     *
+     * @param recordType the record type label
+     * @return the code of the record type, or -1 if it is not registered
+     */
+    public static int find(String recordType) {
+        Integer code = CODES.get(recordType);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Returns the label of a record type code.
+     *
+     * @param code the code returned by {@link #codeOf(String)}
+     * @return the record type label
+     * @throws IllegalArgumentException if the code was never registered
+     */
+    public static String nameOf(int code) {
+        String[] current = names;
+        if (code < 0 || code >= current.length) {
+            throw new IllegalArgumentException("Unknown record type code: " + code);
+        }
+        return current[code];
+    }
+
+    /**
+     * Returns the number of registered record types. Codes are always in the
+     * range {@code [0, count())}.
+     *
+     * @return the number of registered record types
+     */
+    public static int count() {
+        return names.length;
+    }
+
+    private static synchronized int register(String recordType) {
+        Integer existing = CODES.get(recordType);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        int code = current.length;
+        String[] grown = Arrays.copyOf(current, code + 1);
+        grown[code] = recordType;
+        // publish the name before the code so nameOf never misses a known code
+        names = grown;
+        CODES.put(recordType, code);
+        return code;
+    }
+}
@@ -3,10 +3,30 @@ package alerts;
 import com.alerts.Alert;
 import com.alerts.AlertGenerator;
 import com.data_management.DataStorage;
+import com.alerts.AlertDispatcher;
+import com.alerts.AlertSink;
+import com.alerts.AlertSuppressionCache;
+import com.alerts.BackpressurePolicy;
+import com.alerts.BatchAlertEvaluator;
+import com.alerts.BatchEvaluationReport;
+import com.alerts.CollectingAlertSink;
+import com.alerts.SlidingWindowStats;
+import com.alerts.StreamingAlertEngine;
 import com.data_management.Patient;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AlertGenerationTest {
     @Test
@@ -37,6 +57,22 @@ public class AlertGenerationTest {
         assert alert.equals(new Alert("2", "Trend", 2));
     }
 
+    @Test
+    void testBloodPressureTrendWithInterleavedReadings() {
+        DataStorage dataStorage = new DataStorage();
+        AlertGenerator alertGenerator = new AlertGenerator(dataStorage);
+        Patient patient = new Patient(2);
+        patient.addRecord(100, "SystolicPressure", 10);
+        patient.addRecord(70, "DiastolicPressure", 10);
+        patient.addRecord(115, "SystolicPressure", 20);
+        patient.addRecord(72, "DiastolicPressure", 20);
+        patient.addRecord(130, "SystolicPressure", 30);
+
+        alertGenerator.evaluateData(patient);
+        Alert alert = alertGenerator.getLastAlert();
+        assert alert.equals(new Alert("2", "Trend", 30));
+    }
+
     @Test
     void testCriticalThresholds() {
         DataStorage dataStorage = new DataStorage();
@@ -156,4 +192,390 @@ public class AlertGenerationTest {
         assert alert.equals(new Alert("7", "Abnormal ECG", time+1));
     }
 
+    @Test
+    void testStreamingEngineRaisesAlertsOnIngestion() {
+        DataStorage dataStorage = new DataStorage();
+        List<Alert> alerts = new ArrayList<>();
+        new StreamingAlertEngine(alerts::add).attach(dataStorage);
+
+        dataStorage.addPatientData(8, 100, "SystolicPressure", 1000);
+        dataStorage.addPatientData(8, 115, "SystolicPressure", 2000);
+        assert alerts.isEmpty();
+        dataStorage.addPatientData(8, 130, "SystolicPressure", 3000);
+        assert alerts.equals(List.of(new Alert("8", "Trend", 3000)));
+
+        dataStorage.addPatientData(8, 121, "DiastolicPressure", 4000);
+        assert alerts.get(alerts.size() - 1).equals(new Alert("8", "Critical threshold", 4000));
+    }
+
+    @Test
+    void testStreamingEngineSaturationRules() {
+        DataStorage dataStorage = new DataStorage();
+        List<Alert> alerts = new ArrayList<>();
+        new StreamingAlertEngine(alerts::add).attach(dataStorage);
+
+        dataStorage.addPatientData(9, 99, "Saturation", 0);
+        dataStorage.addPatientData(9, 97, "Saturation", 60_000);
+        assertEquals(List.of(), alerts);
+        dataStorage.addPatientData(9, 94, "Saturation", 120_000);
+        assertEquals(List.of(new Alert("9", "Rapid drop", 120_000)), alerts);
+
+        // the 99% reading has left the ten minute window, so this is no drop
+        alerts.clear();
+        dataStorage.addPatientData(9, 93, "Saturation", 11 * 60_000);
+        assertEquals(List.of(), alerts);
+
+        // a late reading neither raises alerts nor joins the window
+        dataStorage.addPatientData(9, 80, "Saturation", 5 * 60_000);
+        dataStorage.addPatientData(9, 91, "Saturation", 12 * 60_000);
+        assertEquals(List.of(), alerts);
+
+        // the oldest reading of the window decides, as in AlertGenerator
+        dataStorage.addPatientData(9, 90, "Saturation", 22 * 60_000);
+        assertEquals(List.of(new Alert("9", "Low Saturation", 22 * 60_000)), alerts);
+        dataStorage.addPatientData(9, 95, "SystolicPressure", 22 * 60_000 + 1);
+        dataStorage.addPatientData(9, 85, "SystolicPressure", 22 * 60_000 + 2);
+        assertTrue(alerts.contains(new Alert("9", "Hypotensive Hypoxemia", 22 * 60_000 + 2)));
+    }
+
+    @Test
+    void testStreamingEngineRaisesTheAlertsOfAlertGenerator() {
+        DataStorage dataStorage = new DataStorage();
+        List<Alert> streamed = new ArrayList<>();
+        new StreamingAlertEngine(streamed::add).attach(dataStorage);
+        AlertGenerator alertGenerator = new AlertGenerator(dataStorage);
+        List<Alert> generated = new ArrayList<>();
+
+        Random random = new Random(42);
+        String[] labels = {"Saturation", "SystolicPressure", "DiastolicPressure", "ECG"};
+        long time = 0;
+        for (int i = 0; i < 5000; i++) {
+            time += 1 + random.nextInt(60_000);
+            String label = labels[random.nextInt(labels.length)];
+            double value;
+            switch (label) {
+                case "Saturation": value = 86 + random.nextInt(15); break;
+                case "SystolicPressure": value = 80 + random.nextInt(110); break;
+                case "DiastolicPressure": value = 55 + random.nextInt(70); break;
+                default: value = random.nextGaussian();
+            }
+            int patientId = 15 + random.nextInt(2);
+            dataStorage.addPatientData(patientId, value, label, time);
+            for (Patient patient : dataStorage.getAllPatients()) {
+                if (patient.getPatientId() == patientId) {
+                    alertGenerator.evaluateData(patient, generated::add);
+                }
+            }
+        }
+
+        assertTrue(generated.size() > 100, "alerts: " + generated.size());
+        assertEquals(generated, streamed);
+    }
+
+    @Test
+    void testStreamingEngineJudgesOnlyNewEcgSample() {
+        DataStorage dataStorage = new DataStorage();
+        List<Alert> alerts = new ArrayList<>();
+        new StreamingAlertEngine(alerts::add).attach(dataStorage);
+
+        dataStorage.addPatientData(10, 0, "ECG", 1);
+        dataStorage.addPatientData(10, 0.1, "ECG", 2);
+        assert alerts.isEmpty();
+        dataStorage.addPatientData(10, 3, "ECG", 3);
+        assert alerts.equals(List.of(new Alert("10", "Abnormal ECG", 3)));
+        dataStorage.addPatientData(10, 0.2, "ECG", 4);
+        assert alerts.size() == 1;
+    }
+
+    @Test
+    void testStreamingEngineEvictsIdleAndRemovedPatients() {
+        DataStorage dataStorage = new DataStorage();
+        List<Alert> alerts = new ArrayList<>();
+        StreamingAlertEngine engine = new StreamingAlertEngine(alerts::add);
+        engine.attach(dataStorage);
+
+        dataStorage.addPatientData(12, 100, "SystolicPressure", 1000);
+        dataStorage.addPatientData(12, 115, "SystolicPressure", 2000);
+        dataStorage.addPatientData(13, 98, "Saturation", 5000);
+        dataStorage.addPatientData(14, 98, "Saturation", 6000);
+        assertEquals(3, engine.getPatientCount());
+
+        assertEquals(1, engine.evictIdle(3000));
+        assertEquals(2, engine.getPatientCount());
+        engine.removePatient(13);
+        assertEquals(1, engine.getPatientCount());
+
+        // patient 12 starts over with fresh rules, so the earlier readings form no trend
+        dataStorage.addPatientData(12, 130, "SystolicPressure", 7000);
+        assertEquals(2, engine.getPatientCount());
+        assertEquals(List.of(), alerts);
+    }
+
+    @Test
+    void testECGSamplesAreJudgedOnce() {
+        DataStorage dataStorage = new DataStorage();
+        AlertGenerator alertGenerator = new AlertGenerator(dataStorage);
+        Patient patient = new Patient(11);
+        patient.addRecord(0, "ECG", 1000);
+        patient.addRecord(3, "ECG", 1001);
+        alertGenerator.evaluateData(patient);
+        assert alertGenerator.getLastAlert().equals(new Alert("11", "Abnormal ECG", 1001));
+
+        patient.addRecord(1.5, "ECG", 1002);
+        alertGenerator.evaluateData(patient);
+        // the earlier abnormal sample is not judged again
+        assert alertGenerator.getLastAlert().equals(new Alert("11", "Abnormal ECG", 1001));
+    }
+
+    @Test
+    void testSlidingWindowStatsMatchesFullRecomputation() {
+        SlidingWindowStats stats = new SlidingWindowStats(100);
+        Random random = new Random(42);
+        List<double[]> samples = new ArrayList<>();
+        for (int t = 0; t < 2000; t++) {
+            double value = random.nextGaussian() * 3 + 10;
+            stats.add(t, value);
+            samples.add(new double[] { t, value });
+
+            double sum = 0;
+            int count = 0;
+            for (double[] sample : samples) {
+                if (sample[0] >= t - 100) {
+                    sum += sample[1];
+                    count++;
+                }
+            }
+            double mean = sum / count;
+            double squares = 0;
+            for (double[] sample : samples) {
+                if (sample[0] >= t - 100) {
+                    squares += (sample[1] - mean) * (sample[1] - mean);
+                }
+            }
+            assertEquals(count, stats.count());
+            assertEquals(mean, stats.mean(), 1e-9);
+            assertEquals(squares / count, stats.variance(), 1e-6);
+        }
+    }
+
+    @Test
+    void testBatchEvaluationMatchesSequentialEvaluation() {
+        DataStorage dataStorage = new DataStorage();
+        for (int patientId = 1; patientId <= 300; patientId++) {
+            // every third patient ends with a critical systolic reading
+            double systolic = patientId % 3 == 0 ? 185 : 120;
+            dataStorage.addPatientData(patientId, systolic, "SystolicPressure", 1000);
+        }
+        List<Alert> sequential = new ArrayList<>();
+        AlertGenerator alertGenerator = new AlertGenerator(dataStorage);
+        for (Patient patient : dataStorage.getAllPatients()) {
+            alertGenerator.evaluateData(patient, sequential::add);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BatchEvaluationReport report = new BatchAlertEvaluator(new AlertGenerator(dataStorage), pool)
+                    .evaluateAll(dataStorage.getAllPatients());
+            assertEquals(300, report.getPatientCount());
+            assertEquals(100, report.getAlerts().size());
+            assertEquals(new HashSet<>(sequential), new HashSet<>(report.getAlerts()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDispatcherDeliversTriggeredAlerts() {
+        CollectingAlertSink sink = new CollectingAlertSink();
+        AlertDispatcher dispatcher = new AlertDispatcher(sink);
+        AlertGenerator alertGenerator = new AlertGenerator(new DataStorage(), dispatcher);
+        Patient patient = new Patient(12);
+        patient.addRecord(181, "SystolicPressure", 12);
+        alertGenerator.evaluateData(patient);
+        patient.addRecord(50, "DiastolicPressure", 13);
+        alertGenerator.evaluateData(patient);
+        dispatcher.close();
+
+        assertEquals(List.of(new Alert("12", "Critical threshold", 12), new Alert("12", "Critical threshold", 13)),
+                sink.getAlerts());
+        assertEquals(2, dispatcher.getQueuedCount());
+        assertEquals(2, dispatcher.getDeliveredCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    void testDispatcherBackpressurePolicies() throws Exception {
+        for (BackpressurePolicy policy : new BackpressurePolicy[] { BackpressurePolicy.DROP,
+                BackpressurePolicy.COALESCE }) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch blocked = new CountDownLatch(1);
+            CollectingAlertSink collector = new CollectingAlertSink();
+            AlertSink slowSink = alerts -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            AlertDispatcher dispatcher = new AlertDispatcher(2, 1, policy, List.of(slowSink, collector));
+            dispatcher.dispatch(new Alert("1", "Trend", 0));
+            blocked.await();
+            // the delivery thread is stuck in the first batch, the queue holds two alerts
+            for (int i = 1; i <= 5; i++) {
+                dispatcher.dispatch(new Alert("1", "Trend", i));
+            }
+            release.countDown();
+            dispatcher.close();
+
+            if (policy == BackpressurePolicy.DROP) {
+                assertEquals(3, dispatcher.getQueuedCount());
+                assertEquals(3, dispatcher.getDroppedCount());
+                assertEquals(3, collector.getAlerts().size());
+            } else {
+                assertEquals(6, dispatcher.getQueuedCount());
+                assertEquals(2, dispatcher.getCoalescedCount());
+                assertEquals(4, collector.getAlerts().size());
+                assertEquals(new Alert("1", "Trend", 5), collector.getAlerts().get(3));
+            }
+        }
+    }
+
+    @Test
+    void testDispatcherDeliversEveryAlertAcceptedBeforeClose() throws Exception {
+        CollectingAlertSink sink = new CollectingAlertSink();
+        AlertDispatcher dispatcher = new AlertDispatcher(8, 4, BackpressurePolicy.BLOCK, List.of(sink));
+        AtomicLong accepted = new AtomicLong();
+        Thread[] dispatchers = new Thread[4];
+        for (int t = 0; t < dispatchers.length; t++) {
+            String patientId = String.valueOf(t);
+            dispatchers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (dispatcher.dispatch(new Alert(patientId, "Trend", i))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            dispatchers[t].start();
+        }
+        Thread.sleep(5);
+        dispatcher.close();
+        for (Thread thread : dispatchers) {
+            thread.join();
+        }
+
+        // whatever raced with close() was either delivered or rejected, never left in the queue
+        assertEquals(accepted.get(), sink.getAlerts().size());
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(40_000, accepted.get() + dispatcher.getDroppedCount());
+        assertFalse(dispatcher.dispatch(new Alert("9", "Trend", 0)));
+    }
+
+    @Test
+    void testCoalescingDispatcherDeliversOrCountsEveryAlertInOrder() throws Exception {
+        CollectingAlertSink sink = new CollectingAlertSink();
+        AlertSink slowSink = alerts -> Thread.yield();
+        AlertDispatcher dispatcher = new AlertDispatcher(4, 2, BackpressurePolicy.COALESCE, List.of(slowSink, sink));
+        Thread[] dispatchers = new Thread[4];
+        for (int t = 0; t < dispatchers.length; t++) {
+            String patientId = String.valueOf(t);
+            dispatchers[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    assertTrue(dispatcher.dispatch(new Alert(patientId, "Condition " + i % 3, i)));
+                }
+            });
+            dispatchers[t].start();
+        }
+        for (Thread thread : dispatchers) {
+            thread.join();
+        }
+        dispatcher.close();
+
+        // a parked alert is either delivered or replaced by a later one, never lost
+        assertEquals(80_000, dispatcher.getQueuedCount());
+        assertTrue(dispatcher.getCoalescedCount() > 0);
+        assertEquals(80_000, sink.getAlerts().size() + dispatcher.getCoalescedCount());
+        assertEquals(sink.getAlerts().size(), dispatcher.getDeliveredCount());
+        // and the alerts of each dispatching thread arrive in the order it dispatched them
+        long[] lastTimestamps = {-1, -1, -1, -1};
+        for (Alert alert : sink.getAlerts()) {
+            int patient = Integer.parseInt(alert.getPatientId());
+            assertTrue(alert.getTimestamp() > lastTimestamps[patient], alert.toString());
+            lastTimestamps[patient] = alert.getTimestamp();
+        }
+        assertEquals(19_999, lastTimestamps[0]);
+    }
+
+    @Test
+    void testSuppressionCacheDeduplicatesRepeatedAlerts() {
+        AlertSuppressionCache cache = new AlertSuppressionCache(1000, 2);
+        assertTrue(cache.shouldDispatch(new Alert("1", "Abnormal ECG", 0)));
+        assertFalse(cache.shouldDispatch(new Alert("1", "Abnormal ECG", 10)));
+        assertFalse(cache.shouldDispatch(new Alert("1", "Abnormal ECG", 999)));
+        assertTrue(cache.shouldDispatch(new Alert("1", "Trend", 100)));
+        assertTrue(cache.shouldDispatch(new Alert("1", "Abnormal ECG", 1000)));
+        assertEquals(3, cache.getPassedCount());
+        assertEquals(2, cache.getSuppressedCount());
+        assertEquals(3, cache.getHitCount());
+
+        // the cache is full: the expired "Trend" key is purged before anything is evicted
+        assertTrue(cache.shouldDispatch(new Alert("2", "Abnormal ECG", 1500)));
+        assertEquals(1, cache.getExpiredCount());
+        assertEquals(0, cache.getEvictionCount());
+        assertTrue(cache.shouldDispatch(new Alert("3", "Abnormal ECG", 1501)));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testDroppedAlertDoesNotSuppressItsRepeats() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CollectingAlertSink collector = new CollectingAlertSink();
+        AlertSink slowSink = alerts -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AlertSuppressionCache cache = new AlertSuppressionCache(60_000, 100);
+        AlertDispatcher dispatcher = new AlertDispatcher(1, 1, BackpressurePolicy.DROP,
+                List.of(slowSink, collector), cache);
+        assertTrue(dispatcher.dispatch(new Alert("1", "Trend", 0)));
+        blocked.await();
+        assertTrue(dispatcher.dispatch(new Alert("2", "Trend", 0)));
+        // the queue is full, so this alert is dropped and must not be remembered as sent
+        assertFalse(dispatcher.dispatch(new Alert("3", "Trend", 0)));
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(2, cache.getPassedCount());
+
+        release.countDown();
+        while (dispatcher.getPendingCount() > 0) {
+            Thread.sleep(1);
+        }
+        assertTrue(dispatcher.dispatch(new Alert("3", "Trend", 10)));
+        dispatcher.close();
+        assertEquals(List.of(new Alert("1", "Trend", 0), new Alert("2", "Trend", 0), new Alert("3", "Trend", 10)),
+                collector.getAlerts());
+        assertEquals(0, cache.getSuppressedCount());
+    }
+
+    @Test
+    void testDispatcherSuppressesRepeatsBeforeQueueing() {
+        CollectingAlertSink sink = new CollectingAlertSink();
+        AlertSuppressionCache cache = new AlertSuppressionCache(60_000, 100);
+        AlertDispatcher dispatcher = new AlertDispatcher(16, 16, BackpressurePolicy.DROP, List.of(sink), cache);
+        AlertGenerator alertGenerator = new AlertGenerator(new DataStorage(), dispatcher);
+        Patient patient = new Patient(13);
+        for (int i = 0; i < 50; i++) {
+            patient.addRecord(181 + i % 2, "SystolicPressure", 1000 + i);
+            alertGenerator.evaluateData(patient);
+        }
+        dispatcher.close();
+        assertEquals(List.of(new Alert("13", "Critical threshold", 1000)), sink.getAlerts());
+        assertEquals(49, cache.getSuppressedCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
 }
@@ -0,0 +1,81 @@
+package cardio_generator;
+
+import com.cardio_generator.outputs.BinaryFileOutputStrategy;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.records.RecordTypes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class OutputStrategyTest {
+
+    @Test
+    void testFileOutputFlushesOnSizeIntervalAndClose() throws Exception {
+        Path directory = Files.createTempDirectory("output");
+        Path ecg = directory.resolve("ECG.txt");
+        Path saturation = directory.resolve("Saturation.txt");
+        try {
+            // a line is about 55 characters, so the second one fills the 100 character buffer
+            try (FileOutputStrategy out = new FileOutputStrategy(directory.toString(), 60_000, 100)) {
+                out.output(1, 1000L, RecordTypes.ECG, 0.25);
+                assertEquals(0, Files.size(ecg));
+                out.output(1, 2000L, RecordTypes.ECG, 0.5);
+                assertEquals(2, Files.readAllLines(ecg).size());
+                out.output(1, 3000L, RecordTypes.ECG, 0.75);
+                out.output(1, 3000L, "Saturation", "97%");
+                assertEquals(2, Files.readAllLines(ecg).size());
+            }
+            // closing wrote what was still buffered and rejects anything later
+            assertEquals(3, Files.readAllLines(ecg).size());
+            assertEquals(List.of("Patient ID: 1, Timestamp: 3000, Label: Saturation, Data: 97%"),
+                    Files.readAllLines(saturation));
+
+            FileOutputStrategy out = new FileOutputStrategy(directory.toString(), 20, 1 << 20);
+            try {
+                out.output(2, 4000L, "Saturation", "96%");
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (Files.readAllLines(saturation).size() < 2 && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertEquals(2, Files.readAllLines(saturation).size());
+            } finally {
+                out.close();
+            }
+            out.output(3, 5000L, "Saturation", "95%");
+            out.output(3, 5000L, "Alert", "triggered");
+            assertEquals(2, Files.readAllLines(saturation).size());
+            assertFalse(Files.exists(directory.resolve("Alert.txt")));
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path written : files) {
+                    Files.delete(written);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void testBinaryOutputCountsRecordsLostToFailedWrites() throws IOException {
+        // every write to this device fails for lack of space
+        Path full = Path.of("/dev/full");
+        if (!Files.isWritable(full)) {
+            return;
+        }
+        BinaryFileOutputStrategy out = new BinaryFileOutputStrategy(full.toString());
+        for (int i = 0; i < 10_000; i++) {
+            out.output(1, 1000L + i, RecordTypes.ECG, i);
+        }
+        out.close();
+        out.output(1, 20_000L, RecordTypes.ECG, 0);
+        assertEquals(10_001, out.getDroppedRecordCount());
+    }
+}
@@ -0,0 +1,46 @@
+package cardio_generator;
+
+import com.cardio_generator.ReplaySimulation;
+import com.records.BinaryRecordFormat;
+import com.data_management.DataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class ReplaySimulationTest {
+
+    @Test
+    void testReplayIsReproducibleForASeed() throws InterruptedException {
+        long start = ReplaySimulation.DEFAULT_START_MILLIS;
+        long tenMinutes = TimeUnit.MINUTES.toMillis(10);
+        // more patients than one range, so ranges are generated in parallel
+        List<String> first = replay(42, start, tenMinutes);
+        List<String> second = replay(42, start, tenMinutes);
+        List<String> other = replay(43, start, tenMinutes);
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+
+        DataStorage storage = new DataStorage();
+        long samples = new ReplaySimulation(42, 300, start, tenMinutes, 0).run((patientId, timestamp, label, data) ->
+                storage.addPatientData(patientId, BinaryRecordFormat.toValue(data), label, timestamp));
+        assertEquals(first.size(), samples);
+        assertEquals(samples, storage.getRecordCount());
+        assertEquals(300, storage.getPatientCount());
+        // ECG every second, saturation every second, blood pressure every minute, blood levels every two minutes
+        assertEquals(600, storage.getRecords(300, "ECG", start, start + tenMinutes).size());
+        assertEquals(10, storage.getRecords(300, "SystolicPressure", start, start + tenMinutes).size());
+        assertEquals(5, storage.getRecords(300, "Cholesterol", start, start + tenMinutes).size());
+    }
+
+    private static List<String> replay(long seed, long start, long duration) throws InterruptedException {
+        List<String> lines = new ArrayList<>();
+        new ReplaySimulation(seed, 300, start, duration, 0).run((patientId, timestamp, label, data) ->
+                lines.add(patientId + "," + timestamp + "," + label + "," + data));
+        return lines;
+    }
+}
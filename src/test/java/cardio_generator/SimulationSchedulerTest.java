@@ -0,0 +1,147 @@
+package cardio_generator;
+
+import com.cardio_generator.TimingWheelScheduler;
+import com.cardio_generator.VirtualThreadScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimulationSchedulerTest {
+
+    @Test
+    void testTimingWheelRunsPeriodsShorterAndLongerThanOneTurn() throws InterruptedException {
+        // a 1 ms tick makes one turn of the 512 slot wheel 512 ms
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(2, 1);
+        List<Long> shortRuns = new CopyOnWriteArrayList<>();
+        List<Long> longRuns = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> shortRuns.add(System.nanoTime() - start), 0, 100, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(() -> longRuns.add(System.nanoTime() - start), 50, 700, TimeUnit.MILLISECONDS);
+        Thread.sleep(1600);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertTrue(shortRuns.size() >= 15, "runs: " + shortRuns.size());
+        assertEquals(3, longRuns.size());
+        assertRunsAtTicks(shortRuns, 0, 100);
+        assertRunsAtTicks(longRuns, 50, 700);
+    }
+
+    /** Checks that the k-th run started no earlier than planned and at most a few ticks late. */
+    private static void assertRunsAtTicks(List<Long> runs, long delayMillis, long periodMillis) {
+        for (int k = 0; k < runs.size(); k++) {
+            long planned = TimeUnit.MILLISECONDS.toNanos(delayMillis + k * periodMillis);
+            long offset = runs.get(k) - planned;
+            assertTrue(offset >= -TimeUnit.MILLISECONDS.toNanos(1), "run " + k + " early by " + -offset + " ns");
+            assertTrue(offset < TimeUnit.MILLISECONDS.toNanos(50), "run " + k + " late by " + offset + " ns");
+        }
+    }
+
+    @Test
+    void testTimingWheelNeverOverlapsATaskWithItself() throws InterruptedException {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(4, 1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        // every run takes 20 ticks, so most planned runs find the previous one in progress
+        scheduler.scheduleAtFixedRate(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            runs.incrementAndGet();
+            sleep(20);
+            running.decrementAndGet();
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(1, maxRunning.get());
+        assertTrue(runs.get() > 1);
+        assertTrue(scheduler.getSkippedRunCount() > 0);
+    }
+
+    @Test
+    void testTimingWheelShutdownTerminates() throws InterruptedException {
+        TimingWheelScheduler unused = new TimingWheelScheduler(2, 1);
+        unused.shutdown();
+        assertTrue(unused.awaitTermination(1, TimeUnit.SECONDS));
+
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(2, 1);
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            scheduler.scheduleAtFixedRate(runs::incrementAndGet, i % 10, 5, TimeUnit.MILLISECONDS);
+        }
+        Thread.sleep(50);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+        int runsAtShutdown = runs.get();
+        assertTrue(runsAtShutdown > 0);
+        Thread.sleep(30);
+        assertEquals(runsAtShutdown, runs.get());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.scheduleAtFixedRate(runs::incrementAndGet, 0, 1, TimeUnit.SECONDS));
+        assertFalse(Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("simulator-ticker")));
+    }
+
+    @Test
+    void testVirtualThreadSchedulerShutdownTerminates() throws InterruptedException {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler();
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            scheduler.scheduleAtFixedRate(runs::incrementAndGet, i % 10, 5, TimeUnit.MILLISECONDS);
+        }
+        // a loop parked far ahead of its next run is woken by the shutdown
+        scheduler.scheduleAtFixedRate(runs::incrementAndGet, 1, 1, TimeUnit.HOURS);
+        Thread.sleep(50);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+        int runsAtShutdown = runs.get();
+        assertTrue(runsAtShutdown > 0);
+        Thread.sleep(30);
+        assertEquals(runsAtShutdown, runs.get());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.scheduleAtFixedRate(runs::incrementAndGet, 0, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testVirtualThreadSchedulerSkipsRunsALoopFellBehindOn() throws InterruptedException {
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler();
+        List<Long> runs = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> {
+            runs.add(System.nanoTime() - start);
+            if (runs.size() == 1) {
+                // the first run takes as long as five periods
+                sleep(100);
+            }
+        }, 0, 20, TimeUnit.MILLISECONDS);
+        Thread.sleep(250);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+
+        // the missed runs are not replayed back to back: one run on catching up, then the period again;
+        // a run that starts late is followed by the next at its planned time, so a gap can be shorter
+        assertTrue(runs.size() >= 5 && runs.size() <= 9, "runs: " + runs);
+        assertTrue(runs.get(1) >= TimeUnit.MILLISECONDS.toNanos(100), "runs: " + runs);
+        for (int k = 2; k < runs.size(); k++) {
+            long gap = runs.get(k) - runs.get(k - 1);
+            assertTrue(gap >= TimeUnit.MILLISECONDS.toNanos(10), "runs: " + runs);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
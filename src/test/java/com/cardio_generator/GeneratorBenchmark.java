@@ -0,0 +1,84 @@
+package com.cardio_generator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.cardio_generator.generators.AlertGenerator;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+
+/**
+ * Compares the throughput of the generators called once per patient and
+ * sample, with a clock read and a shared {@code Random} per call, with their
+ * batch methods filling a {@link SampleBatch} per patient range and thread.
+ * Both variants discard the samples, so only generation is measured.
+ * Usage: {@code GeneratorBenchmark [patients] [ticks] [threads]}, 100,000
+ * patients for 50 ticks on one thread per core by default.
+ */
+public class GeneratorBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        PatientDataGenerator[] generators = {
+                new ECGDataGenerator(patients),
+                new BloodSaturationDataGenerator(patients),
+                new BloodPressureDataGenerator(patients),
+                new BloodLevelsDataGenerator(patients),
+                new AlertGenerator(patients),
+        };
+        for (int round = 0; round < 3; round++) {
+            measure("per call", patients, ticks, threads, (from, to, random, batch, samples) -> {
+                OutputStrategy discard = (patientId, timestamp, label, data) -> samples.increment();
+                for (PatientDataGenerator generator : generators) {
+                    for (int patientId = from; patientId < to; patientId++) {
+                        generator.generate(patientId, discard);
+                    }
+                }
+            });
+            measure("batch", patients, ticks, threads, (from, to, random, batch, samples) -> {
+                long timestamp = System.currentTimeMillis();
+                for (PatientDataGenerator generator : generators) {
+                    batch.clear();
+                    generator.generateBatch(from, to, timestamp, random, batch);
+                    samples.add(batch.size());
+                }
+            });
+        }
+    }
+
+    private static void measure(String name, int patients, int ticks, int threads, Tick tick)
+            throws InterruptedException {
+        LongAdder samples = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        int rangeSize = (patients + threads - 1) / threads;
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int from = 1 + t * rangeSize;
+            int to = Math.min(from + rangeSize, patients + 1);
+            SplittableRandom random = new SplittableRandom(t);
+            workers[t] = new Thread(() -> {
+                SampleBatch batch = new SampleBatch(3 * rangeSize);
+                for (int i = 0; i < ticks; i++) {
+                    tick.run(from, to, random, batch, samples);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-9s %12.0f samples/s on %d threads%n", name, samples.sum() / seconds, threads);
+    }
+
+    private interface Tick {
+        void run(int fromPatientId, int toPatientId, SplittableRandom random, SampleBatch batch, LongAdder samples);
+    }
+}
@@ -0,0 +1,78 @@
+package com.cardio_generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the schedulers of the {@link HealthDataSimulator} under the load of
+ * the two per-second generators of a number of patients, with every run
+ * blocking for a while as a slow output would. For each scheduler it prints
+ * the share of the planned runs that happened and the jitter of the interval
+ * between two runs of the same task; a scheduler sustains the patient count
+ * while it completes close to all planned runs with a small jitter.
+ * Usage: {@code SchedulerBenchmark [patients] [blockMillis] [seconds] [types]},
+ * 2000 patients blocking 5 ms for 10 seconds on 'wheel,pool,virtual' by default.
+ */
+public class SchedulerBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long blockMillis = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String[] types = (args.length > 3 ? args[3] : "wheel,pool,virtual").split(",");
+        for (String type : types) {
+            measure(type, patients, blockMillis, seconds);
+        }
+    }
+
+    private static void measure(String type, int patients, long blockMillis, int seconds)
+            throws InterruptedException {
+        SimulationScheduler scheduler = HealthDataSimulator.createScheduler(type, patients);
+        long periodNanos = TimeUnit.SECONDS.toNanos(1);
+        LongAdder runs = new LongAdder();
+        LongAdder intervals = new LongAdder();
+        LongAdder jitterNanos = new LongAdder();
+        LongAccumulator maxJitterNanos = new LongAccumulator(Math::max, 0);
+        for (int patient = 0; patient < patients; patient++) {
+            long delay = patient % 5;
+            for (int generator = 0; generator < 2; generator++) {
+                long[] lastRun = { 0 };
+                scheduler.scheduleAtFixedRate(() -> {
+                    long now = System.nanoTime();
+                    if (lastRun[0] != 0) {
+                        long jitter = Math.abs(now - lastRun[0] - periodNanos);
+                        intervals.increment();
+                        jitterNanos.add(jitter);
+                        maxJitterNanos.accumulate(jitter);
+                    }
+                    lastRun[0] = now;
+                    runs.increment();
+                    block(blockMillis);
+                }, delay, 1, TimeUnit.SECONDS);
+            }
+        }
+        // runs of the first five seconds are spread over the initial delays and not counted
+        Thread.sleep(5000);
+        long runsBefore = runs.sum();
+        intervals.reset();
+        jitterNanos.reset();
+        maxJitterNanos.reset();
+        Thread.sleep(seconds * 1000L);
+        long measuredRuns = runs.sum() - runsBefore;
+        long measuredIntervals = Math.max(intervals.sum(), 1);
+        System.out.printf("%-8s %d patients: %5.1f%% of planned runs, jitter %7.1f ms mean %8.1f ms max, %d threads%n",
+                type, patients, 100.0 * measuredRuns / (2L * patients * seconds),
+                jitterNanos.sum() / 1e6 / measuredIntervals, maxJitterNanos.get() / 1e6, Thread.activeCount());
+        scheduler.shutdown();
+        scheduler.awaitTermination(blockMillis + 5000, TimeUnit.MILLISECONDS);
+    }
+
+    private static void block(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
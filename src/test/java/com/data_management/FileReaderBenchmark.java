@@ -0,0 +1,108 @@
+package com.data_management;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.cardio_generator.outputs.BinaryFileOutputStrategy;
+
+/**
+ * Compares the throughput and allocation of {@link FileReader} with the
+ * previous line-splitting reader on a generated file of simulator output, and
+ * of the text format with the binary format of {@link BinaryFileReader}.
+ * Usage: {@code FileReaderBenchmark [lines]}, 3,000,000 lines by default.
+ */
+public class FileReaderBenchmark {
+    private static final String[] LABELS = { "ECG", "Saturation", "SystolicPressure", "DiastolicPressure" };
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        Path file = Files.createTempFile("records", ".txt");
+        Path binaryFile = Files.createTempFile("records", ".bin");
+        Files.delete(binaryFile);
+        try {
+            measure("text write", file, lines, () -> writeText(file, lines));
+            measure("binary write", binaryFile, lines, () -> writeBinary(binaryFile, lines));
+            double megabytes = Files.size(file) / (1024.0 * 1024.0);
+            double binaryMegabytes = Files.size(binaryFile) / (1024.0 * 1024.0);
+            System.out.printf("%d lines, %.1f MB as text, %.1f MB as binary%n", lines, megabytes, binaryMegabytes);
+            for (int round = 0; round < 3; round++) {
+                measure("split", file, lines, () -> readWithSplit(file, new DataStorage()));
+                measure("parser", file, lines, () -> new FileReader(file.toString()).readData(new DataStorage()));
+                measure("binary", binaryFile, lines,
+                        () -> new BinaryFileReader(binaryFile.toString()).readData(new DataStorage()));
+            }
+        } finally {
+            Files.delete(file);
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+    private static void writeText(Path file, int lines) throws IOException {
+        Random random = new Random(1);
+        long timestamp = 1714376789050L;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (int i = 0; i < lines; i++) {
+                String label = LABELS[i % LABELS.length];
+                String data = label.equals("Saturation") ? (95.0 + random.nextInt(5)) + "%"
+                        : Double.toString(random.nextGaussian() * 10);
+                out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
+                        1 + random.nextInt(100), timestamp + i, label, data);
+            }
+        }
+    }
+
+    private static void writeBinary(Path file, int lines) throws IOException {
+        Random random = new Random(1);
+        long timestamp = 1714376789050L;
+        try (BinaryFileOutputStrategy out = new BinaryFileOutputStrategy(file.toString())) {
+            for (int i = 0; i < lines; i++) {
+                String label = LABELS[i % LABELS.length];
+                double value = label.equals("Saturation") ? 95.0 + random.nextInt(5) : random.nextGaussian() * 10;
+                out.output(1 + random.nextInt(100), timestamp + i, label, value);
+            }
+        }
+    }
+
+    private static void measure(String name, Path file, int lines, Task task) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        task.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        double megabytes = Files.size(file) / (1024.0 * 1024.0);
+        System.out.printf("%-12s %7.0f MB/s %10.0f lines/s %8.1f bytes allocated/line%n",
+                name, megabytes / seconds, lines / seconds, (double) allocated / lines);
+    }
+
+    /**
+     * The reader used before {@link RecordLineParser}: one String per line,
+     * split into parts, with labels and numbers parsed from substrings.
+     */
+    private static void readWithSplit(Path file, DataStorage dataStorage) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(", ");
+                int patientId = Integer.parseInt(parts[0].substring("Patient ID: ".length()));
+                long timestamp = Long.parseLong(parts[1].substring("Timestamp: ".length()));
+                String recordType = parts[2].substring("Label: ".length());
+                String data = parts[3].substring("Data: ".length());
+                // the old reader rejected saturation values; strip the '%' so both read the same records
+                if (data.endsWith("%")) {
+                    data = data.substring(0, data.length() - 1);
+                }
+                dataStorage.addPatientData(patientId, Double.parseDouble(data), recordType, timestamp);
+            }
+        }
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -2,14 +2,44 @@ package data_management;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.cardio_generator.outputs.BinaryFileOutputStrategy;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.data_management.BinaryFileReader;
 import com.data_management.DataReader;
 import com.data_management.FileReader;
 import org.junit.jupiter.api.Test;
 
 import com.data_management.DataStorage;
+import com.data_management.DirectoryDataReader;
+import com.data_management.DurableDataStorage;
+import com.data_management.Patient;
 import com.data_management.PatientRecord;
+import com.data_management.RecordCursor;
+import com.records.RecordTypes;
+import com.data_management.CompactionReport;
+import com.data_management.RetentionCompactor;
+import com.data_management.RetentionPolicy;
+import com.data_management.Rollup;
+import com.data_management.TailingDataReader;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class DataStorageTest {
 
@@ -24,4 +54,676 @@ class DataStorageTest {
         assertEquals(2, records.size()); // Check if two records are retrieved
         assertEquals(100.0, records.get(0).getMeasurementValue()); // Validate first record
     }
+
+    @Test
+    void testLastNRecordsAcrossRecordTypes() {
+        DataStorage storage = new DataStorage();
+        storage.addPatientData(1, 95.0, "Saturation", 1000L);
+        storage.addPatientData(1, 120.0, "SystolicPressure", 1000L);
+        storage.addPatientData(1, 0.3, "ECG", 2000L);
+
+        List<PatientRecord> lastRecords = storage.getAllPatients().get(0).getLastNRecords(3);
+        assertEquals(3, lastRecords.size());
+        assertEquals("ECG", lastRecords.get(0).getRecordType());
+        assertEquals("SystolicPressure", lastRecords.get(1).getRecordType());
+        assertEquals("Saturation", lastRecords.get(2).getRecordType());
+    }
+
+    @Test
+    void testPerSampleFootprint() {
+        DataStorage storage = new DataStorage();
+        int samples = 100_000;
+        for (int i = 0; i < samples; i++) {
+            storage.addPatientData(i % 10, i * 0.5, "ECG", 1714376789050L + i);
+        }
+        assertEquals(samples, storage.getRecordCount());
+        double bytesPerSample = (double) storage.getFootprintBytes() / samples;
+        assertTrue(bytesPerSample < 17.0, "footprint per sample was " + bytesPerSample);
+
+        List<PatientRecord> records = storage.getRecords(3, 1714376789050L, 1714376789050L + 99);
+        assertEquals(10, records.size());
+        assertEquals(3 * 0.5, records.get(0).getMeasurementValue());
+        assertEquals("ECG", records.get(0).getRecordType());
+    }
+
+    @Test
+    void testOutOfOrderRecordsAreKeptInTimestampOrder() {
+        DataStorage storage = new DataStorage();
+        storage.addPatientData(1, 1.0, "ECG", 1000L);
+        storage.addPatientData(1, 3.0, "ECG", 3000L);
+        storage.addPatientData(1, 2.0, "ECG", 2000L);
+        storage.addPatientData(1, 97.0, "Saturation", 2500L);
+        storage.addPatientData(1, 0.5, "ECG", 500L);
+
+        List<PatientRecord> records = storage.getRecords(1, 0L, 5000L);
+        assertEquals(5, records.size());
+        long previous = Long.MIN_VALUE;
+        for (PatientRecord record : records) {
+            assertTrue(record.getTimestamp() >= previous);
+            previous = record.getTimestamp();
+        }
+        assertEquals(97.0, records.get(3).getMeasurementValue());
+        assertEquals(3.0, storage.getAllPatients().get(0).getLastNRecords(1).get(0).getMeasurementValue());
+    }
+
+    @Test
+    void testRangeQueryBoundariesAreInclusive() {
+        DataStorage storage = new DataStorage();
+        for (int i = 0; i < 5000; i++) {
+            storage.addPatientData(1, i, "ECG", i * 10L);
+        }
+        List<PatientRecord> records = storage.getRecords(1, 100L, 200L);
+        assertEquals(11, records.size());
+        assertEquals(10.0, records.get(0).getMeasurementValue());
+        assertEquals(20.0, records.get(10).getMeasurementValue());
+        assertTrue(storage.getRecords(1, 200L, 100L).isEmpty());
+        assertTrue(storage.getRecords(1, 50001L, 60000L).isEmpty());
+    }
+
+    @Test
+    void testRecordsOfTypeInRange() {
+        DataStorage storage = new DataStorage();
+        for (int i = 0; i < 100; i++) {
+            storage.addPatientData(1, i, "ECG", i);
+            storage.addPatientData(1, 90 + i % 10, "Saturation", i);
+        }
+        List<PatientRecord> saturation = storage.getRecords(1, "Saturation", 10L, 19L);
+        assertEquals(10, saturation.size());
+        for (PatientRecord record : saturation) {
+            assertEquals(RecordTypes.SATURATION, record.getRecordTypeCode());
+        }
+        assertEquals(90.0, saturation.get(0).getMeasurementValue());
+        assertTrue(storage.getRecords(1, "Cholesterol", 0L, 100L).isEmpty());
+        assertTrue(storage.getRecords(2, "ECG", 0L, 100L).isEmpty());
+    }
+
+    @Test
+    void testConcurrentWritersDoNotLoseRecords() throws Exception {
+        DataStorage storage = new DataStorage();
+        int writers = 8;
+        int patients = 16;
+        int recordsPerWriter = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < recordsPerWriter; i++) {
+                    // every patient is written by several writers at once
+                    int patientId = (writer + i) % patients;
+                    String type = i % 2 == 0 ? "ECG" : "Saturation";
+                    storage.addPatientData(patientId, i, type, 1714376789050L + i);
+                }
+                return null;
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            while (writing.get()) {
+                for (Patient patient : storage.getAllPatients()) {
+                    List<PatientRecord> records = patient.getRecords(0L, Long.MAX_VALUE);
+                    for (int i = 1; i < records.size(); i++) {
+                        assertTrue(records.get(i - 1).getTimestamp() <= records.get(i).getTimestamp());
+                    }
+                }
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        reader.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(patients, storage.getAllPatients().size());
+        assertEquals((long) writers * recordsPerWriter, storage.getRecordCount());
+        int ecgRecords = 0;
+        for (Patient patient : storage.getAllPatients()) {
+            ecgRecords += patient.getRecords(RecordTypes.ECG, 0L, Long.MAX_VALUE).size();
+        }
+        assertEquals(writers * recordsPerWriter / 2, ecgRecords);
+    }
+
+    @Test
+    void testFileReaderParsesValuesExactly() throws IOException {
+        Random random = new Random(42);
+        int count = 50_000;
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0:
+                    values[i] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+                    break;
+                case 1:
+                    double bits;
+                    do {
+                        bits = Double.longBitsToDouble(random.nextLong());
+                    } while (Double.isNaN(bits) || Double.isInfinite(bits));
+                    values[i] = Double.toString(bits);
+                    break;
+                case 2:
+                    // up to 19 significant digits with an arbitrary exponent
+                    values[i] = Long.toString(Math.abs(random.nextLong() >> random.nextInt(63)))
+                            + "E" + (random.nextInt(660) - 340);
+                    break;
+                default:
+                    values[i] = random.nextInt(100) + "." + random.nextInt(1000);
+            }
+        }
+        // exponents that do not fit in an int must not wrap around
+        values[0] = "1E4294967296";
+        values[1] = "-2.5E4294967297";
+        values[2] = "1E-4294967296";
+        Path file = Files.createTempFile("records", ".txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (int i = 0; i < count; i++) {
+                out.printf("Patient ID: %d, Timestamp: %d, Label: ECG, Data: %s%n", 1, i, values[i]);
+            }
+            out.print("Patient ID: 2, Timestamp: 5, Label: Saturation, Data: 97.0%\n");
+            out.print("Patient ID: 2, Timestamp: 6, Label: Alert, Data: triggered");
+        }
+        DataStorage storage = new DataStorage();
+        try {
+            new FileReader(file.toString()).readData(storage);
+        } finally {
+            Files.delete(file);
+        }
+
+        List<PatientRecord> records = storage.getRecords(1, 0L, Long.MAX_VALUE);
+        assertEquals(count, records.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Double.parseDouble(values[i]), records.get(i).getMeasurementValue(), 0.0, values[i]);
+        }
+        List<PatientRecord> other = storage.getRecords(2, 0L, Long.MAX_VALUE);
+        assertEquals(97.0, other.get(0).getMeasurementValue());
+        assertEquals("Alert", other.get(1).getRecordType());
+        assertEquals(1.0, other.get(1).getMeasurementValue());
+    }
+
+    @Test
+    void testFileReaderRejectsMalformedLines() throws IOException {
+        for (String malformed : new String[] { "Patient 1, ECG\n",
+                "Patient ID: 4294967297, Timestamp: 5, Label: ECG, Data: 0.5\n" }) {
+            Path file = Files.createTempFile("records", ".txt");
+            Files.writeString(file, "Patient ID: 1, Timestamp: 5, Label: ECG, Data: 0.5\n" + malformed);
+            try {
+                assertThrows(IOException.class, () -> new FileReader(file.toString()).readData(new DataStorage()));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testDirectoryReaderImportsAllFilesAcrossChunks() throws IOException {
+        Path directory = Files.createTempDirectory("output");
+        StringBuilder ecg = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            ecg.append("Patient ID: ").append(i % 10).append(", Timestamp: ").append(1000 + i)
+                    .append(", Label: ECG, Data: ").append(i / 100.0).append('\n');
+        }
+        Files.writeString(directory.resolve("ECG.txt"), ecg);
+        Files.writeString(directory.resolve("Alert.txt"),
+                "Patient ID: 3, Timestamp: 5000, Label: Alert, Data: triggered\n"
+                        + "Patient ID: 3, Timestamp: 6000, Label: Alert, Data: resolved");
+        Files.writeString(directory.resolve("notes.md"), "not simulator output");
+
+        DataStorage storage = new DataStorage();
+        // chunks much smaller than the files, so lines are split across many tasks
+        DirectoryDataReader reader = new DirectoryDataReader(directory.toString(), 3, 256);
+        try {
+            reader.readData(storage);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+
+        assertEquals(1002, reader.getLastReport().getRecordCount());
+        assertEquals(2, reader.getLastReport().getFileCount());
+        Patient patient = storage.getAllPatients().stream().filter(p -> p.getPatientId() == 3).findFirst().get();
+        List<PatientRecord> ecgRecords = patient.getRecords(RecordTypes.ECG, 0L, Long.MAX_VALUE);
+        assertEquals(100, ecgRecords.size());
+        for (int i = 0; i < ecgRecords.size(); i++) {
+            assertEquals(1003 + 10 * i, ecgRecords.get(i).getTimestamp());
+            assertEquals((3 + 10 * i) / 100.0, ecgRecords.get(i).getMeasurementValue());
+        }
+        List<PatientRecord> alerts = patient.getRecords(RecordTypes.ALERT, 0L, Long.MAX_VALUE);
+        assertEquals(List.of(1.0, 0.0), alerts.stream().map(PatientRecord::getMeasurementValue).toList());
+    }
+
+    @Test
+    void testTailingReaderIngestsOnlyAppendedLines() throws Exception {
+        Path directory = Files.createTempDirectory("output");
+        Path file = directory.resolve("ECG.txt");
+        Files.writeString(file, "Patient ID: 1, Timestamp: 1, Label: ECG, Data: 0.1\n"
+                + "Patient ID: 1, Timestamp: 2, Label: ECG, Data: 0.2\nPatient ID: 1, Timest");
+        DataStorage storage = new DataStorage();
+        TailingDataReader reader = new TailingDataReader(directory.toString());
+        try {
+            reader.readData(storage);
+            assertEquals(2, storage.getRecords(1, 0L, Long.MAX_VALUE).size());
+
+            // complete the partial line and start another one
+            Files.writeString(file, "amp: 3, Label: ECG, Data: 0.3\nPatient ID: 1, Timestamp: 4, Label: ECG",
+                    StandardOpenOption.APPEND);
+            reader.readData(storage);
+            reader.readData(storage);
+            List<PatientRecord> records = storage.getRecords(1, 0L, Long.MAX_VALUE);
+            assertEquals(3, records.size());
+            assertEquals(0.3, records.get(2).getMeasurementValue());
+
+            Thread follower = new Thread(() -> {
+                try {
+                    reader.follow(storage);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            follower.start();
+            Files.writeString(file, ", Data: 0.4\n", StandardOpenOption.APPEND);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (reader.getRecordCount() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            reader.close();
+            follower.join(5000);
+            assertFalse(follower.isAlive());
+            assertEquals(4, storage.getRecords(1, 0L, Long.MAX_VALUE).size());
+            assertEquals(4, reader.getRecordCount());
+        } finally {
+            reader.close();
+            Files.delete(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void testBinaryFormatRoundTrip() throws IOException {
+        Path file = Files.createTempFile("records", ".bin");
+        Files.delete(file);
+        try {
+            try (BinaryFileOutputStrategy out = new BinaryFileOutputStrategy(file.toString())) {
+                out.output(1, 1000L, "ECG", "0.25");
+                out.output(1, 2000L, "Saturation", "97.0%");
+                // a jump too large for an int delta, and back
+                out.output(1, 1000L + (1L << 40), "ECG", "-0.5");
+                out.output(2, 3000L, "Alert", "triggered");
+            }
+            // appending starts a new session with its own label codes
+            try (BinaryFileOutputStrategy out = new BinaryFileOutputStrategy(file.toString(), false)) {
+                out.output(2, 4000L, "Alert", "resolved");
+                out.output(1, 5000L, "ECG", "0.75");
+            }
+            assertTrue(Files.size(file) < 256);
+
+            DataStorage storage = new DataStorage();
+            new BinaryFileReader(file.toString()).readData(storage);
+            List<PatientRecord> first = storage.getRecords(1, 0L, Long.MAX_VALUE);
+            assertEquals(4, first.size());
+            assertEquals("Saturation", first.get(1).getRecordType());
+            assertEquals(97.0, first.get(1).getMeasurementValue());
+            assertEquals(0.75, first.get(2).getMeasurementValue());
+            assertEquals(1000L + (1L << 40), first.get(3).getTimestamp());
+            List<PatientRecord> second = storage.getRecords(2, 0L, Long.MAX_VALUE);
+            assertEquals("Alert", second.get(0).getRecordType());
+            assertEquals(List.of(1.0, 0.0), second.stream().map(PatientRecord::getMeasurementValue).toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testHistoryIsCompressedAndReadBack() {
+        DataStorage storage = new DataStorage();
+        Random random = new Random(3);
+        int samples = 20_000;
+        long start = 1714376789050L;
+        long[] timestamps = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            // one sample per second with a few milliseconds of scheduling jitter
+            timestamps[i] = start + i * 1000L + random.nextInt(5);
+            storage.addPatientData(1, 95 + random.nextInt(3), "Saturation", timestamps[i]);
+        }
+        double bytesPerSample = (double) storage.getFootprintBytes() / samples;
+        assertTrue(bytesPerSample < 4.0, "footprint per sample was " + bytesPerSample);
+
+        random = new Random(3);
+        List<PatientRecord> records = storage.getRecords(1, 0L, Long.MAX_VALUE);
+        assertEquals(samples, records.size());
+        for (int i = 0; i < samples; i++) {
+            random.nextInt(5);
+            assertEquals(timestamps[i], records.get(i).getTimestamp());
+            assertEquals(95 + random.nextInt(3), records.get(i).getMeasurementValue());
+        }
+        // a range inside the compressed history
+        List<PatientRecord> range = storage.getRecords(1, timestamps[5000], timestamps[5009]);
+        assertEquals(10, range.size());
+        assertEquals(timestamps[5000], range.get(0).getTimestamp());
+
+        // a late sample lands in the compressed history
+        storage.addPatientData(1, 50.0, "Saturation", timestamps[100] + 1);
+        range = storage.getRecords(1, timestamps[100], timestamps[101]);
+        assertEquals(3, range.size());
+        assertEquals(50.0, range.get(1).getMeasurementValue());
+        assertEquals(samples + 1, storage.getRecords(1, 0L, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testDurableStorageRecoversFromSnapshotAndLog() throws IOException {
+        Path directory = Files.createTempDirectory("storage");
+        try {
+            try (DurableDataStorage storage = new DurableDataStorage(directory.toString())) {
+                for (int i = 0; i < 3000; i++) {
+                    storage.addPatientData(i % 3, i, "ECG", 1000L + i);
+                }
+                storage.snapshot();
+                for (int i = 3000; i < 5000; i++) {
+                    storage.addPatientData(i % 3, i, i % 2 == 0 ? "ECG" : "Saturation", 1000L + i);
+                }
+                storage.sync();
+            }
+            // a crash in the middle of a write leaves a torn frame at the end of the log
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "wal-*.log")) {
+                Path last = null;
+                for (Path segment : segments) {
+                    last = last == null || segment.compareTo(last) > 0 ? segment : last;
+                }
+                Files.write(last, new byte[] { 0, 1, 0 }, StandardOpenOption.APPEND);
+            }
+
+            try (DurableDataStorage storage = new DurableDataStorage(directory.toString())) {
+                assertEquals(3000, storage.getRecoveryReport().getSnapshotRecordCount());
+                assertEquals(2000, storage.getRecoveryReport().getReplayedRecordCount());
+                assertEquals(5000, storage.getRecordCount());
+                List<PatientRecord> records = storage.getRecords(1, 0L, Long.MAX_VALUE);
+                for (int i = 0; i < records.size(); i++) {
+                    assertEquals(1 + 3 * i, records.get(i).getMeasurementValue());
+                }
+                // the log continues after the recovered samples
+                storage.addPatientData(7, 1.0, "ECG", 1L);
+                storage.sync();
+            }
+            try (DurableDataStorage storage = new DurableDataStorage(directory.toString())) {
+                assertEquals(5001, storage.getRecordCount());
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void testDurableStorageRejectsLogWithLostSamplesBeforeItsNewestSegment() throws IOException {
+        Path directory = Files.createTempDirectory("storage");
+        try {
+            // every reopening starts a new segment, so this writes two
+            for (int round = 0; round < 2; round++) {
+                try (DurableDataStorage storage = new DurableDataStorage(directory.toString())) {
+                    for (int i = 0; i < 1000; i++) {
+                        storage.addPatientData(1, i, "ECG", 1000L * round + i);
+                    }
+                    storage.sync();
+                }
+            }
+            Path first;
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "wal-*.log")) {
+                first = null;
+                for (Path segment : segments) {
+                    first = first == null || segment.compareTo(first) < 0 ? segment : first;
+                }
+            }
+            // losing the end of an older segment is not a torn tail, the samples after it were written
+            byte[] bytes = Files.readAllBytes(first);
+            Files.write(first, Arrays.copyOf(bytes, bytes.length / 2));
+
+            IOException e = assertThrows(IOException.class, () -> new DurableDataStorage(directory.toString()));
+            assertTrue(e.getMessage().contains("samples up to 1000 are lost"), e.getMessage());
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void testDurableStorageRestoresIdenticalReadingsLoggedDuringSnapshot() throws Exception {
+        Path directory = Files.createTempDirectory("storage");
+        try {
+            try (DurableDataStorage storage = new DurableDataStorage(directory.toString())) {
+                for (int i = 0; i < 20_000; i++) {
+                    storage.addPatientData(i % 50, 1.0, "ECG", 1000L);
+                }
+                Thread writer = new Thread(() -> {
+                    // the same reading over and over, as a stuck sensor would report it
+                    for (int i = 0; i < 200_000; i++) {
+                        storage.addPatientData(i % 50, 1.0, "ECG", 1000L);
+                    }
+                });
+                writer.start();
+                storage.snapshot();
+                writer.join();
+                storage.sync();
+            }
+            try (DurableDataStorage storage = new DurableDataStorage(directory.toString())) {
+                assertEquals(220_000, storage.getRecordCount());
+                assertEquals(220_000, storage.getRecoveryReport().getSnapshotRecordCount()
+                        + storage.getRecoveryReport().getReplayedRecordCount());
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void testRetentionEvictsOldSamplesButKeepsRollups() {
+        DataStorage storage = new DataStorage();
+        long start = 1_700_000_040_000L; // on a minute boundary
+        long hour = 60 * 60 * 1000L;
+        int samples = 3 * 3600; // one ECG sample per second for three hours
+        for (int i = 0; i < samples; i++) {
+            storage.addPatientData(1, i, "ECG", start + 1000L * i);
+            if (i % 60 == 0) {
+                storage.addPatientData(1, 95, "Saturation", start + 1000L * i);
+            }
+        }
+        long now = start + 3 * hour;
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setRetention("ECG", hour, 3 * hour);
+        RetentionCompactor compactor = new RetentionCompactor(storage, policy);
+        long footprint = storage.getFootprintBytes();
+
+        CompactionReport report = compactor.compact(now);
+        long evicted = report.getEvictedSampleCount();
+        assertTrue(evicted >= samples - 3600 - 2 * 1024, "evicted " + evicted);
+        assertEquals(samples + 180 - evicted, storage.getRecordCount());
+        assertTrue(report.getReclaimedBytes() > 0);
+        assertEquals(footprint - report.getReclaimedBytes(), storage.getFootprintBytes());
+        // the last hour and the types without retention are untouched
+        assertEquals(3600, storage.getRecords(1, "ECG", now - hour, now).size());
+        assertEquals(180, storage.getRecords(1, "Saturation", 0L, now).size());
+
+        // the evicted samples still count in the per-minute aggregates
+        List<Rollup> rollups = storage.aggregate(1, "ECG", 0L, now, 60_000L);
+        assertEquals(180, rollups.size());
+        long rolledUp = 0;
+        for (Rollup rollup : rollups) {
+            long first = (rollup.getStartTime() - start) / 1000;
+            assertEquals(first, rollup.getMin());
+            assertEquals(first + rollup.getCount() - 1, rollup.getMax());
+            assertEquals(first + (rollup.getCount() - 1) / 2.0, rollup.getMean(), 1e-9);
+            rolledUp += rollup.getCount();
+        }
+        assertEquals(samples, rolledUp);
+        assertEquals(start, rollups.get(0).getStartTime());
+
+        CompactionReport later = compactor.compact(now + 2 * hour);
+        assertTrue(later.getEvictedRollupCount() > 0);
+        assertEquals(now - hour, storage.aggregate(1, "ECG", 0L, now, 60_000L).get(0).getStartTime());
+        assertEquals(evicted + later.getEvictedSampleCount(), compactor.getTotalEvictedSampleCount());
+    }
+
+    @Test
+    void testAggregatesMatchRawSamples() {
+        DataStorage storage = new DataStorage();
+        Random random = new Random(5);
+        long start = 1714376789050L;
+        for (int i = 0; i < 50_000; i++) {
+            storage.addPatientData(2, random.nextGaussian(), "ECG", start + 250L * i + random.nextInt(100));
+        }
+        // a late sample is folded into an older rollup
+        storage.addPatientData(2, 100.0, "ECG", start + 60_000L);
+
+        for (long bucketMillis : new long[] { 10_000L, 60_000L, 3_600_000L }) {
+            long from = start + 1_234_567L;
+            long to = start + 9_876_543L;
+            List<Rollup> buckets = storage.aggregate(2, "ECG", from, to, bucketMillis);
+            long widenedFrom = Math.floorDiv(from, bucketMillis) * bucketMillis;
+            long widenedTo = Math.floorDiv(to, bucketMillis) * bucketMillis + bucketMillis - 1;
+            List<PatientRecord> records = storage.getRecords(2, "ECG", widenedFrom, widenedTo);
+            int next = 0;
+            for (Rollup bucket : buckets) {
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                double sum = 0;
+                int count = 0;
+                for (; next < records.size() && records.get(next).getTimestamp() < bucket.getEndTime(); next++) {
+                    double value = records.get(next).getMeasurementValue();
+                    assertTrue(records.get(next).getTimestamp() >= bucket.getStartTime());
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    sum += value;
+                    count++;
+                }
+                assertEquals(count, bucket.getCount());
+                assertEquals(min, bucket.getMin());
+                assertEquals(max, bucket.getMax());
+                assertEquals(sum / count, bucket.getMean(), 1e-9);
+            }
+            assertEquals(records.size(), next);
+        }
+        assertEquals(100.0, storage.aggregate(2, "ECG", start, start, 3_600_000L).get(0).getMax());
+        assertTrue(storage.aggregate(3, "ECG", 0L, Long.MAX_VALUE, 60_000L).isEmpty());
+    }
+
+    @Test
+    void testCursorMatchesRecordsAcrossBatches() {
+        DataStorage storage = new DataStorage();
+        for (int i = 0; i < 1000; i++) {
+            // runs of equal timestamps cross the cursor's batch boundaries
+            storage.addPatientData(4, i, "ECG", 1000L + i / 7);
+            storage.addPatientData(4, -i, "Saturation", 1000L + i);
+        }
+        List<PatientRecord> expected = storage.getRecords(4, "ECG", 1010L, 1100L);
+        RecordCursor cursor = storage.getCursor(4, "ECG", 1010L, 1100L);
+        int count = 0;
+        while (cursor.next()) {
+            assertEquals(expected.get(count).getTimestamp(), cursor.timestamp());
+            assertEquals(expected.get(count).getMeasurementValue(), cursor.value());
+            assertEquals(RecordTypes.ECG, cursor.recordType());
+            assertEquals(4, cursor.patientId());
+            count++;
+            if (count == 100) {
+                // added while the cursor is open: behind it and ahead of it
+                storage.addPatientData(4, -1.0, "ECG", 1011L);
+                storage.addPatientData(4, -2.0, "ECG", 1099L);
+                expected.add(expected.size() - 7, new PatientRecord(4, -2.0, "ECG", 1099L));
+            }
+        }
+        assertEquals(expected.size(), count);
+        assertFalse(cursor.next());
+
+        // a reused cursor and an unknown patient
+        Patient patient = storage.getAllPatients().get(0);
+        assertTrue(patient.getCursor(RecordTypes.SATURATION, 1500L, 1500L, cursor).next());
+        assertEquals(-500.0, cursor.value());
+        assertFalse(cursor.next());
+        assertFalse(storage.getCursor(5, "ECG", 0L, Long.MAX_VALUE).next());
+    }
+
+    @Test
+    void testQueriesForUnknownLabelsDoNotRegisterThem() {
+        DataStorage storage = new DataStorage();
+        storage.addPatientData(1, 0.5, "ECG", 1000L);
+        int registered = RecordTypes.count();
+        assertTrue(storage.getRecords(1, "EKG", 0L, Long.MAX_VALUE).isEmpty());
+        assertFalse(storage.getCursor(1, "EKG", 0L, Long.MAX_VALUE).next());
+        assertTrue(storage.aggregate(1, "EKG", 0L, Long.MAX_VALUE, 60_000L).isEmpty());
+        assertTrue(Patient.filterRecordsBasedOnLabel("EKG", storage.getRecords(1, 0L, 2000L)).isEmpty());
+        assertEquals(1, Patient.filterRecordsBasedOnLabels(List.of("EKG", "ECG"),
+                storage.getRecords(1, 0L, 2000L)).size());
+        assertEquals(registered, RecordTypes.count());
+        assertEquals(-1, RecordTypes.find("EKG"));
+    }
+
+    @Test
+    void testBatchOutputMatchesStringOutput() throws IOException {
+        SampleBatch batch = new SampleBatch(4);
+        batch.add(1, 1000L, RecordTypes.ECG, 0.25);
+        batch.add(2, 1000L, RecordTypes.ECG, -0.5);
+        batch.add(1, 1000L, RecordTypes.SATURATION, 97);
+        batch.add(2, 1000L, RecordTypes.ALERT, 1);
+        batch.add(1, 2000L, RecordTypes.ALERT, 0);
+
+        // strategies that only implement the string variant get the generators' data strings
+        List<String> lines = new ArrayList<>();
+        OutputStrategy collecting = (patientId, timestamp, label, data) ->
+                lines.add(patientId + "," + timestamp + "," + label + "," + data);
+        collecting.output(batch);
+        assertEquals(List.of("1,1000,ECG,0.25", "2,1000,ECG,-0.5", "1,1000,Saturation,97.0%",
+                "2,1000,Alert,triggered", "1,2000,Alert,resolved"), lines);
+
+        Path directory = Files.createTempDirectory("output");
+        Path file = Files.createTempFile("records", ".bin");
+        Files.delete(file);
+        try {
+            try (FileOutputStrategy out = new FileOutputStrategy(directory.toString())) {
+                out.output(batch);
+                out.output(3, 3000L, "ECG", "1.5");
+            }
+            assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: ECG, Data: 0.25",
+                    "Patient ID: 2, Timestamp: 1000, Label: ECG, Data: -0.5",
+                    "Patient ID: 3, Timestamp: 3000, Label: ECG, Data: 1.5"),
+                    Files.readAllLines(directory.resolve("ECG.txt")));
+            assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: Saturation, Data: 97.0%"),
+                    Files.readAllLines(directory.resolve("Saturation.txt")));
+
+            try (BinaryFileOutputStrategy out = new BinaryFileOutputStrategy(file.toString())) {
+                out.output(batch);
+            }
+            DataStorage storage = new DataStorage();
+            new BinaryFileReader(file.toString()).readData(storage);
+            assertEquals(5, storage.getRecordCount());
+            assertEquals(97.0, storage.getRecords(1, "Saturation", 0L, Long.MAX_VALUE).get(0).getMeasurementValue());
+            assertEquals(-0.5, storage.getRecords(2, "ECG", 0L, Long.MAX_VALUE).get(0).getMeasurementValue());
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path written : files) {
+                    Files.delete(written);
+                }
+            }
+            Files.delete(directory);
+            Files.deleteIfExists(file);
+        }
+    }
 }